@@ -0,0 +1,472 @@
+package SortedList;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link SortedList} whose nodes live in a pool of parallel arrays instead of separate objects.
+ * <p>
+ * Node <tt>i</tt> is made of <tt>values[i]</tt>, <tt>counts[i]</tt>, <tt>next[i]</tt> and
+ * <tt>prev[i]</tt>, and callers refer to nodes by that int index instead of by a node reference.
+ * Slots released by <tt>remove</tt>, <tt>removeN</tt> and <tt>removeAll</tt> go onto a free list
+ * (threaded through <tt>next</tt>) and are handed out again by later inserts, so a list that
+ * churns through values stops growing once it reaches its peak number of distinct values.
+ * <p>
+ * A node index stays valid for as long as its node is in the list; once the node is removed, the
+ * index may be reused for a different value.
+ * <p>
+ * The methods and their running times otherwise follow SortedList, with <tt>NIL</tt> taking the
+ * place of <tt>Optional.empty()</tt>.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class ArraySortedList<T extends Comparable<T>> implements Iterable<T> {
+    /**
+     * Node index standing for "no node"
+     */
+    public static final int NIL = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] values;
+    private int[] counts;
+    private int[] next;
+    private int[] prev;
+    /**
+     * Head of the free list, or NIL if every allocated slot is in use
+     */
+    private int free;
+    /**
+     * Number of slots ever handed out; slots at or above this index have never been used
+     */
+    private int used;
+
+    /**
+     * Index of the first node in the list, or NIL if list is empty
+     */
+    private int headNode;
+    /**
+     * Index of the last node in the list, or NIL if list is empty
+     */
+    private int lastNode;
+    /**
+     * Number of elements in the list (which may be different from number of nodes)
+     */
+    private int length;
+    /**
+     * Number of nodes in the list
+     */
+    private int nodes;
+
+    /**
+     * Creates an empty ArraySortedList
+     */
+    public ArraySortedList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty ArraySortedList with room for <tt>capacity</tt> nodes before it grows
+     *
+     * @param capacity the initial number of node slots
+     */
+    public ArraySortedList(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.values = new Object[capacity];
+        this.counts = new int[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.free = NIL;
+        this.used = 0;
+        this.headNode = NIL;
+        this.lastNode = NIL;
+        this.length = 0;
+        this.nodes = 0;
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return the number of distinct values (nodes) in the list
+     */
+    public int nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the index of the first node, or NIL if the list is empty
+     */
+    public int headNode() {
+        return this.headNode;
+    }
+
+    /**
+     * @return the index of the last node, or NIL if the list is empty
+     */
+    public int lastNode() {
+        return this.lastNode;
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the value held by <tt>ref</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public T value(int ref) {
+        return (T) this.values[ref];
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the number of instances of the value held by <tt>ref</tt>
+     */
+    public int count(int ref) {
+        return this.counts[ref];
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the node holding the next greater value, or NIL if <tt>ref</tt> is the last node
+     */
+    public int next(int ref) {
+        return this.next[ref];
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the node holding the next lesser value, or NIL if <tt>ref</tt> is the first node
+     */
+    public int prev(int ref) {
+        return this.prev[ref];
+    }
+
+    /**
+     * Find the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * NIL if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public int findRefBefore(T elem) {
+        int before = NIL;
+        for (int current = this.headNode; current != NIL && value(current).compareTo(elem) <= 0;
+             current = this.next[current]) {
+            before = current;
+        }
+        return before;
+    }
+
+    /**
+     * Find the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @param hint a node "close" to <tt>elem</tt>
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * NIL if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int findRefBefore(T elem, int hint) {
+        int current = hint;
+        if (value(current).compareTo(elem) <= 0) {
+            while (this.next[current] != NIL && value(this.next[current]).compareTo(elem) <= 0) {
+                current = this.next[current];
+            }
+            return current;
+        }
+        while (current != NIL && value(current).compareTo(elem) > 0) {
+            current = this.prev[current];
+        }
+        return current;
+    }
+
+    /**
+     * Find the node holding the specified element
+     *
+     * @param elem the element to find
+     * @return the node containing <tt>elem</tt>, or NIL if <tt>elem</tt> is not in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public int findRef(T elem) {
+        return matching(findRefBefore(elem), elem);
+    }
+
+    /**
+     * Find the node holding the specified element
+     *
+     * @param elem the element to find
+     * @param hint a node "close" to <tt>elem</tt>
+     * @return the node containing <tt>elem</tt>, or NIL if <tt>elem</tt> is not in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int findRef(T elem, int hint) {
+        return matching(findRefBefore(elem, hint), elem);
+    }
+
+    private int matching(int before, T elem) {
+        return before != NIL && value(before).compareTo(elem) == 0 ? before : NIL;
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return the node holding the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     *
+     * This function should run in O(idx)
+     */
+    public int getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= this.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int current = this.headNode;
+        int pos = 0;
+        while (pos + this.counts[current] <= idx) {
+            pos += this.counts[current];
+            current = this.next[current];
+        }
+        return current;
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     *
+     * This function should run in O(idx)
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return value(getRef(idx));
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return the node holding the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, the existing node just has its count updated.
+     * <p>
+     * This function should run in O(length)
+     */
+    public int insert(T elem) {
+        return insertAfter(findRefBefore(elem), elem);
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @param hint a node "close" to <tt>elem</tt>, or NIL
+     * @return the node holding the inserted value
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int insert(T elem, int hint) {
+        if (hint == NIL) {
+            return insert(elem);
+        }
+        return insertAfter(findRefBefore(elem, hint), elem);
+    }
+
+    private int insertAfter(int before, T elem) {
+        this.length++;
+        if (matching(before, elem) != NIL) {
+            this.counts[before]++;
+            return before;
+        }
+
+        int node = allocate(elem);
+        int after = before == NIL ? this.headNode : this.next[before];
+        this.prev[node] = before;
+        this.next[node] = after;
+        if (before == NIL) {
+            this.headNode = node;
+        } else {
+            this.next[before] = node;
+        }
+        if (after == NIL) {
+            this.lastNode = node;
+        } else {
+            this.prev[after] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public T remove(int ref) {
+        return removeN(ref, 1);
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @param n the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>n</tt> > the count of <tt>ref</tt>
+     *
+     * If the node is emptied, its slot is released and may be reused by a later insert.
+     *
+     * This function should run in O(1)
+     */
+    public T removeN(int ref, int n) throws IllegalArgumentException {
+        if (this.counts[ref] < n) {
+            throw new IllegalArgumentException();
+        }
+        T ret = value(ref);
+        this.counts[ref] -= n;
+        this.length -= n;
+        if (this.counts[ref] == 0) {
+            unlink(ref);
+            release(ref);
+        }
+        return ret;
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public T removeAll(int ref) {
+        return removeN(ref, this.counts[ref]);
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  the node with the value to be updated
+     * @param elem the new value
+     * @return the node now holding <tt>elem</tt>
+     * <p>
+     * If i is the position of ref before the update and j is the position of ref after the update,
+     * then this function should run in O(|i-j|)
+     */
+    public int update(int ref, T elem) {
+        int ret = insert(elem, ref);
+        remove(ref);
+        return ret;
+    }
+
+    /**
+     * Modifies the value at an index
+     *
+     * @param idx  the index of the element to be updated
+     * @param elem the new value
+     * @return the node now holding <tt>elem</tt>
+     * <p>
+     * This function should run in O(idx)
+     */
+    public int updateAt(int idx, T elem) {
+        return update(getRef(idx), elem);
+    }
+
+    /**
+     * Return an iterator over the elements of the collection
+     *
+     * @return an iterator over the elements of the collection, in sorted order
+     * <p>
+     * The iterator's <tt>next</tt> and <tt>hasNext</tt> methods should both run in O(1)
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int current = headNode;
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return current != NIL;
+            }
+
+            @Override
+            public T next() {
+                if (current == NIL) {
+                    throw new NoSuchElementException();
+                }
+                T ret = value(current);
+                count++;
+                if (count >= counts[current]) {
+                    current = next[current];
+                    count = 0;
+                }
+                return ret;
+            }
+        };
+    }
+
+    private void unlink(int ref) {
+        int before = this.prev[ref];
+        int after = this.next[ref];
+        if (before == NIL) {
+            this.headNode = after;
+        } else {
+            this.next[before] = after;
+        }
+        if (after == NIL) {
+            this.lastNode = before;
+        } else {
+            this.prev[after] = before;
+        }
+    }
+
+    private int allocate(T elem) {
+        int slot;
+        if (this.free != NIL) {
+            slot = this.free;
+            this.free = this.next[slot];
+        } else {
+            if (this.used == this.values.length) {
+                grow();
+            }
+            slot = this.used++;
+        }
+        this.values[slot] = elem;
+        this.counts[slot] = 1;
+        this.nodes++;
+        return slot;
+    }
+
+    private void release(int ref) {
+        this.values[ref] = null;
+        this.prev[ref] = NIL;
+        this.next[ref] = this.free;
+        this.free = ref;
+        this.nodes--;
+    }
+
+    private void grow() {
+        int capacity = this.values.length * 2;
+        this.values = Arrays.copyOf(this.values, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.next = Arrays.copyOf(this.next, capacity);
+        this.prev = Arrays.copyOf(this.prev, capacity);
+    }
+}
@@ -0,0 +1,567 @@
+package SortedList;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * An unrolled variant of {@link SortedList} that stores many (value, count) runs per node.
+ * <p>
+ * The list is a doubly linked list of chunks, and each chunk holds a small sorted array of
+ * distinct values with a parallel array of counts. Searches hop from chunk to chunk comparing
+ * only the first value of each, then binary search inside one chunk, and the iterator walks
+ * whole arrays, so both touch a handful of contiguous arrays instead of one object per distinct
+ * value. Overhead per distinct value drops to one array slot and one <tt>int</tt>.
+ * <p>
+ * A chunk that overflows is split in two, and a chunk that falls below a quarter full is merged
+ * with its successor when they fit together. Because runs move between chunks, operations hand
+ * out {@link Ref} handles rather than the storage itself. A handle remembers the value and the
+ * chunk it was last seen in; chunks that are merged away keep a forward pointer to the chunk that
+ * absorbed them, so a handle is resolved by following forward pointers and then searching from
+ * its chunk. A handle stays valid for as long as its value is in the list, and can be passed as
+ * a hint just like a node of a SortedList.
+ * <p>
+ * Each chunk also keeps the handle it has handed out for each run, next to the value and the
+ * count, and moves it along with the run. Looking up a value that already has a handle returns
+ * that same handle instead of allocating a new one, and its chunk is always up to date.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class ChunkedSortedList<T extends Comparable<T>> implements Iterable<T> {
+    /**
+     * Default number of runs a chunk holds
+     */
+    public static final int DEFAULT_CHUNK_CAPACITY = 64;
+
+    /**
+     * A stable handle to a value held in a ChunkedSortedList
+     */
+    public static final class Ref<T> {
+        public final T value;
+        /**
+         * The chunk the value was last seen in, which may since have been merged away
+         */
+        private Chunk<T> chunk;
+
+        private Ref(Chunk<T> chunk, T value) {
+            this.chunk = chunk;
+            this.value = value;
+        }
+    }
+
+    private static final class Chunk<T> {
+        final Object[] values;
+        final int[] counts;
+        /**
+         * The handle handed out for each run, or null if none has been yet
+         */
+        final Object[] refs;
+        /**
+         * Number of runs in the chunk
+         */
+        int size;
+        /**
+         * Number of elements in the chunk, counting duplicates
+         */
+        int total;
+        Chunk<T> prev;
+        Chunk<T> next;
+        /**
+         * For a chunk that has been removed from the list, the chunk that took over its runs
+         */
+        Chunk<T> forward;
+
+        Chunk(int capacity) {
+            this.values = new Object[capacity];
+            this.counts = new int[capacity];
+            this.refs = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        T value(int i) {
+            return (T) this.values[i];
+        }
+
+        /**
+         * @return the handle for run <tt>i</tt>, creating it on first use
+         */
+        @SuppressWarnings("unchecked")
+        Ref<T> ref(int i) {
+            Ref<T> ref = (Ref<T>) this.refs[i];
+            if (ref == null) {
+                ref = new Ref<>(this, value(i));
+                this.refs[i] = ref;
+            }
+            return ref;
+        }
+
+        /**
+         * Point the handles of runs <tt>from</tt> to <tt>to</tt> (exclusive) at this chunk
+         */
+        @SuppressWarnings("unchecked")
+        void adopt(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (this.refs[i] != null) {
+                    ((Ref<T>) this.refs[i]).chunk = this;
+                }
+            }
+        }
+    }
+
+    private final int capacity;
+    /**
+     * First chunk of the list; it is the only chunk that may be empty, and only when the list is
+     */
+    private Chunk<T> head;
+    /**
+     * Number of elements in the list (which may be different from number of runs)
+     */
+    private int length;
+
+    /**
+     * Creates an empty ChunkedSortedList with chunks of the default capacity
+     */
+    public ChunkedSortedList() {
+        this(DEFAULT_CHUNK_CAPACITY);
+    }
+
+    /**
+     * Creates an empty ChunkedSortedList
+     *
+     * @param chunkCapacity the number of runs a chunk holds
+     * @throws IllegalArgumentException if <tt>chunkCapacity</tt> < 4
+     */
+    public ChunkedSortedList(int chunkCapacity) throws IllegalArgumentException {
+        if (chunkCapacity < 4) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = chunkCapacity;
+        this.head = new Chunk<>(chunkCapacity);
+        this.length = 0;
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return the number of chunks in the list
+     */
+    public int chunks() {
+        int chunks = 0;
+        for (Chunk<T> c = this.head; c != null; c = c.next) {
+            chunks++;
+        }
+        return chunks;
+    }
+
+    /**
+     * @param ref a handle to a value
+     * @return the number of instances of <tt>ref.value</tt> in the list, which is 0 if it has been
+     * removed
+     */
+    public int count(Ref<T> ref) {
+        Chunk<T> c = resolve(ref);
+        int i = search(c, ref.value);
+        return i < 0 ? 0 : c.counts[i];
+    }
+
+    /**
+     * Find a reference to the run holding elem, or the run that would precede it
+     *
+     * @param elem the element to find
+     * @return a handle to the greatest element less than or equal to <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is smaller than every element in the list
+     * <p>
+     * This function should run in O(length / chunkCapacity + log chunkCapacity)
+     */
+    public Optional<Ref<T>> findRefBefore(T elem) {
+        return findRefBefore(elem, null);
+    }
+
+    /**
+     * Find a reference to the run holding elem, or the run that would precede it
+     *
+     * @param elem the element to find
+     * @param hint a handle to a value near <tt>elem</tt>, or null
+     * @return a handle to the greatest element less than or equal to <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is smaller than every element in the list
+     * <p>
+     * If d is the number of chunks between the hint and <tt>elem</tt>, this function should run
+     * in O(d + log chunkCapacity)
+     */
+    public Optional<Ref<T>> findRefBefore(T elem, Ref<T> hint) {
+        Chunk<T> c = locate(elem, hint);
+        int i = search(c, elem);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i < 0 ? Optional.empty() : Optional.of(c.ref(i));
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @return <tt>Optional.of(ref)</tt> where <tt>ref</tt> is a handle to <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is not in the list
+     * <p>
+     * This function should run in O(length / chunkCapacity + log chunkCapacity)
+     */
+    public Optional<Ref<T>> findRef(T elem) {
+        return findRef(elem, null);
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @param hint a handle to a value near <tt>elem</tt>, or null
+     * @return <tt>Optional.of(ref)</tt> where <tt>ref</tt> is a handle to <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is not in the list
+     * <p>
+     * If d is the number of chunks between the hint and <tt>elem</tt>, this function should run
+     * in O(d + log chunkCapacity)
+     */
+    public Optional<Ref<T>> findRef(T elem, Ref<T> hint) {
+        Chunk<T> c = locate(elem, hint);
+        int i = search(c, elem);
+        return i < 0 ? Optional.empty() : Optional.of(c.ref(i));
+    }
+
+    /**
+     * Return a handle to the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return a handle to the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * Whole chunks are skipped by their element totals, so this function should run in
+     * O(length / chunkCapacity + chunkCapacity)
+     */
+    public Ref<T> getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= this.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        Chunk<T> c = this.head;
+        while (idx >= c.total) {
+            idx -= c.total;
+            c = c.next;
+        }
+        int i = 0;
+        while (idx >= c.counts[i]) {
+            idx -= c.counts[i];
+            i++;
+        }
+        return c.ref(i);
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return getRef(idx).value;
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return a handle to the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, its count is incremented. This function should run
+     * in O(length / chunkCapacity + chunkCapacity).
+     */
+    public Ref<T> insert(T elem) {
+        return insert(elem, null);
+    }
+
+    /**
+     * Insert a new value into the list, starting the search from a hint
+     *
+     * @param elem the value to insert
+     * @param hint a handle to a value near <tt>elem</tt>, or null
+     * @return a handle to the inserted value
+     * <p>
+     * If d is the number of chunks between the hint and <tt>elem</tt>, this function should run
+     * in O(d + chunkCapacity)
+     */
+    public Ref<T> insert(T elem, Ref<T> hint) {
+        Chunk<T> c = locate(elem, hint);
+        int i = search(c, elem);
+        if (i < 0) {
+            i = -i - 1;
+            if (c.size == this.capacity) {
+                split(c);
+                if (i > c.size) {
+                    i -= c.size;
+                    c = c.next;
+                }
+            }
+            System.arraycopy(c.values, i, c.values, i + 1, c.size - i);
+            System.arraycopy(c.counts, i, c.counts, i + 1, c.size - i);
+            System.arraycopy(c.refs, i, c.refs, i + 1, c.size - i);
+            c.values[i] = elem;
+            c.counts[i] = 0;
+            c.refs[i] = null;
+            c.size++;
+        }
+        c.counts[i]++;
+        c.total++;
+        this.length++;
+        return c.ref(i);
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt>
+     *
+     * @param ref a handle to the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>ref.value</tt> is no longer in the list
+     * <p>
+     * This function should run in O(chunkCapacity)
+     */
+    public T remove(Ref<T> ref) throws IllegalArgumentException {
+        return removeN(ref, 1);
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt>
+     *
+     * @param ref a handle to the value to remove
+     * @param n   the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if fewer than <tt>n</tt> instances of <tt>ref.value</tt>
+     *                                  are in the list
+     * <p>
+     * This function should run in O(chunkCapacity)
+     */
+    public T removeN(Ref<T> ref, int n) throws IllegalArgumentException {
+        Chunk<T> c = resolve(ref);
+        int i = search(c, ref.value);
+        if (i < 0 || c.counts[i] < n) {
+            throw new IllegalArgumentException();
+        }
+        c.counts[i] -= n;
+        c.total -= n;
+        this.length -= n;
+        if (c.counts[i] == 0) {
+            c.size--;
+            System.arraycopy(c.values, i + 1, c.values, i, c.size - i);
+            System.arraycopy(c.counts, i + 1, c.counts, i, c.size - i);
+            System.arraycopy(c.refs, i + 1, c.refs, i, c.size - i);
+            c.values[c.size] = null;
+            c.refs[c.size] = null;
+            shrink(c);
+        }
+        return ref.value;
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt>
+     *
+     * @param ref a handle to the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>ref.value</tt> is no longer in the list
+     * <p>
+     * This function should run in O(chunkCapacity)
+     */
+    public T removeAll(Ref<T> ref) throws IllegalArgumentException {
+        int count = count(ref);
+        if (count == 0) {
+            throw new IllegalArgumentException();
+        }
+        return removeN(ref, count);
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  a handle to the value to be updated
+     * @param elem the new value
+     * @return a handle to the new value
+     * @throws IllegalArgumentException if <tt>ref.value</tt> is no longer in the list
+     * <p>
+     * The search for the new value starts from <tt>ref</tt>, so if d is the number of chunks
+     * between the old and the new value, this function should run in O(d + chunkCapacity)
+     */
+    public Ref<T> update(Ref<T> ref, T elem) throws IllegalArgumentException {
+        if (count(ref) == 0) {
+            throw new IllegalArgumentException();
+        }
+        Ref<T> ret = insert(elem, ref);
+        remove(ref);
+        return ret;
+    }
+
+    /**
+     * Return an iterator over the elements of the collection
+     *
+     * @return an iterator over the elements, in sorted order
+     * <p>
+     * The iterator's <tt>next</tt> and <tt>hasNext</tt> methods run in O(1)
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Chunk<T> chunk = ChunkedSortedList.this.head;
+            private int slot = 0;
+            private int remaining = chunk.size == 0 ? 0 : chunk.counts[0];
+
+            @Override
+            public boolean hasNext() {
+                return this.remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (this.remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                T value = this.chunk.value(this.slot);
+                if (--this.remaining == 0) {
+                    if (++this.slot == this.chunk.size) {
+                        this.chunk = this.chunk.next;
+                        this.slot = 0;
+                    }
+                    if (this.chunk != null) {
+                        this.remaining = this.chunk.counts[this.slot];
+                    }
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Find the chunk a handle's value is in, or would be in, following the forward pointers of
+     * merged chunks and remembering the result in the handle
+     */
+    private Chunk<T> resolve(Ref<T> ref) {
+        Chunk<T> c = ref.chunk;
+        while (c.forward != null) {
+            c = c.forward;
+        }
+        c = locate(ref.value, c);
+        ref.chunk = c;
+        return c;
+    }
+
+    /**
+     * @return the chunk that holds elem, or that elem would be inserted into: the last chunk
+     * whose first value is less than or equal to elem, or the head if there is none
+     */
+    private Chunk<T> locate(T elem, Ref<T> hint) {
+        return locate(elem, hint == null ? this.head : resolve(hint));
+    }
+
+    private Chunk<T> locate(T elem, Chunk<T> c) {
+        while (c.prev != null && elem.compareTo(c.value(0)) < 0) {
+            c = c.prev;
+        }
+        while (c.next != null && elem.compareTo(c.next.value(0)) >= 0) {
+            c = c.next;
+        }
+        return c;
+    }
+
+    /**
+     * Binary search for elem among the runs of a chunk
+     *
+     * @return the slot holding elem, or <tt>-(insertion point) - 1</tt> if it is not there
+     */
+    private int search(Chunk<T> c, T elem) {
+        int lo = 0;
+        int hi = c.size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = c.value(mid).compareTo(elem);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -lo - 1;
+    }
+
+    /**
+     * Move the upper half of a full chunk into a new chunk linked right after it
+     */
+    private void split(Chunk<T> c) {
+        Chunk<T> upper = new Chunk<>(this.capacity);
+        int keep = c.size / 2;
+        upper.size = c.size - keep;
+        System.arraycopy(c.values, keep, upper.values, 0, upper.size);
+        System.arraycopy(c.counts, keep, upper.counts, 0, upper.size);
+        System.arraycopy(c.refs, keep, upper.refs, 0, upper.size);
+        upper.adopt(0, upper.size);
+        for (int i = keep; i < c.size; i++) {
+            upper.total += c.counts[i];
+            c.values[i] = null;
+            c.refs[i] = null;
+        }
+        c.size = keep;
+        c.total -= upper.total;
+
+        upper.prev = c;
+        upper.next = c.next;
+        if (c.next != null) {
+            c.next.prev = upper;
+        }
+        c.next = upper;
+    }
+
+    /**
+     * Restore the chunk invariants after runs were removed from <tt>c</tt>: drop it if it is
+     * empty, or merge it with its successor if it is under a quarter full and they fit together
+     */
+    private void shrink(Chunk<T> c) {
+        if (c.size == 0) {
+            if (c.next != null) {
+                unlink(c, c.next);
+            } else if (c.prev != null) {
+                unlink(c, c.prev);
+            }
+        } else if (c.size < this.capacity / 4 && c.next != null
+                && c.size + c.next.size <= this.capacity * 3 / 4) {
+            Chunk<T> next = c.next;
+            System.arraycopy(next.values, 0, c.values, c.size, next.size);
+            System.arraycopy(next.counts, 0, c.counts, c.size, next.size);
+            System.arraycopy(next.refs, 0, c.refs, c.size, next.size);
+            c.adopt(c.size, c.size + next.size);
+            c.size += next.size;
+            c.total += next.total;
+            unlink(next, c);
+        }
+    }
+
+    /**
+     * Remove a chunk from the list, forwarding handles that point to it to <tt>heir</tt>
+     */
+    private void unlink(Chunk<T> c, Chunk<T> heir) {
+        if (c.prev == null) {
+            this.head = c.next;
+        } else {
+            c.prev.next = c.next;
+        }
+        if (c.next != null) {
+            c.next.prev = c.prev;
+        }
+        Arrays.fill(c.values, null);
+        Arrays.fill(c.refs, null);
+        c.prev = null;
+        c.next = null;
+        c.forward = heir;
+    }
+}
@@ -0,0 +1,314 @@
+package SortedList;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe variant of {@link SortedList}.
+ * <p>
+ * Values are kept in a lock-free concurrent skip list (<tt>ConcurrentSkipListMap</tt>) mapping
+ * each distinct value to its node, so lookups, inserts of new values and iteration never take a
+ * lock and writers to different values never contend. Counts on existing nodes are updated with
+ * compare-and-set, so concurrent inserts of a duplicate are a single atomic increment.
+ * <p>
+ * A node whose count drops to zero is dead: it is unmapped, and any insert that races with the
+ * removal and still sees the dead node helps unmap it and retries with a fresh node. Node
+ * references therefore stay valid for as long as their count is positive.
+ * <p>
+ * Iteration, <tt>get</tt> and <tt>length</tt> are weakly consistent: they reflect some state of
+ * the list at or after the moment they start, and never throw
+ * <tt>ConcurrentModificationException</tt>.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class ConcurrentSortedList<T extends Comparable<T>> implements Iterable<T> {
+    /**
+     * A node of a ConcurrentSortedList, holding a value and its (atomically updated) count
+     */
+    public static class Node<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Node> COUNT =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "count");
+
+        public final T value;
+        private volatile int count;
+
+        private Node(T value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        /**
+         * @return the number of instances of <tt>value</tt> in the list, or 0 if the node has
+         * been removed
+         */
+        public int count() {
+            return this.count;
+        }
+
+        /**
+         * Add one instance to a live node
+         *
+         * @return false if the node is dead and was left untouched
+         */
+        private boolean increment() {
+            int c;
+            do {
+                c = this.count;
+                if (c == 0) {
+                    return false;
+                }
+            } while (!COUNT.compareAndSet(this, c, c + 1));
+            return true;
+        }
+
+        /**
+         * Remove n instances, or all of them if n is negative
+         *
+         * @return the number of instances removed, which is 0 if the node was already dead
+         * @throws IllegalArgumentException if the node holds fewer than n instances
+         */
+        private int decrement(int n) throws IllegalArgumentException {
+            int c;
+            int removed;
+            do {
+                c = this.count;
+                if (c == 0) {
+                    return 0;
+                }
+                removed = n < 0 ? c : n;
+                if (c < removed) {
+                    throw new IllegalArgumentException();
+                }
+            } while (!COUNT.compareAndSet(this, c, c - removed));
+            return removed;
+        }
+    }
+
+    private final ConcurrentSkipListMap<T, Node<T>> nodes;
+    /**
+     * Number of elements in the list (which may be different from number of nodes)
+     */
+    private final LongAdder length;
+
+    /**
+     * Creates an empty ConcurrentSortedList
+     */
+    public ConcurrentSortedList() {
+        this.nodes = new ConcurrentSkipListMap<>();
+        this.length = new LongAdder();
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int length() {
+        return this.length.intValue();
+    }
+
+    /**
+     * Find a reference to the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is smaller than every element in the list
+     * <p>
+     * This function should run in expected O(log length) and never blocks
+     */
+    public Optional<Node<T>> findRefBefore(T elem) {
+        Map.Entry<T, Node<T>> entry = this.nodes.floorEntry(elem);
+        while (entry != null && entry.getValue().count == 0) {
+            entry = this.nodes.lowerEntry(entry.getKey());
+        }
+        return entry == null ? Optional.empty() : Optional.of(entry.getValue());
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @return <tt>Optional.of(node)</tt> where <tt>node</tt> contains <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is not in the list
+     * <p>
+     * This function should run in expected O(log length) and never blocks
+     */
+    public Optional<Node<T>> findRef(T elem) {
+        Node<T> node = this.nodes.get(elem);
+        return node == null || node.count == 0 ? Optional.empty() : Optional.of(node);
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return the node holding the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or the list has no element at
+     *                                   <tt>idx</tt> while it is being walked
+     * <p>
+     * This function should run in O(idx)
+     */
+    public Node<T> getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        int pos = 0;
+        for (Node<T> node : this.nodes.values()) {
+            pos += node.count;
+            if (pos > idx) {
+                return node;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException as for <tt>getRef</tt>
+     * <p>
+     * This function should run in O(idx)
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return getRef(idx).value;
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return a reference to the node holding the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, the existing node's count is incremented
+     * atomically instead of creating a new node.
+     * <p>
+     * This function should run in expected O(log length) and never blocks
+     */
+    public Node<T> insert(T elem) {
+        while (true) {
+            Node<T> node = this.nodes.get(elem);
+            if (node == null) {
+                Node<T> created = new Node<>(elem, 1);
+                node = this.nodes.putIfAbsent(elem, created);
+                if (node == null) {
+                    this.length.increment();
+                    return created;
+                }
+            }
+            if (node.increment()) {
+                this.length.increment();
+                return node;
+            }
+            this.nodes.remove(elem, node);
+        }
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove
+     * @return the removed value, or null if <tt>ref</tt> had already been removed
+     * <p>
+     * This function should run in O(1), or in expected O(log length) if the node is removed
+     */
+    public T remove(Node<T> ref) {
+        return removeN(ref, 1);
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove
+     * @param n the number of instances of the value to remove
+     * @return the removed value, or null if <tt>ref</tt> had already been removed
+     * @throws IllegalArgumentException if <tt>n</tt> < 1 or <tt>n</tt> > <tt>ref.count()</tt>
+     * <p>
+     * This function should run in O(1), or in expected O(log length) if the node is removed
+     */
+    public T removeN(Node<T> ref, int n) throws IllegalArgumentException {
+        if (n < 1) {
+            throw new IllegalArgumentException();
+        }
+        return removed(ref, ref.decrement(n));
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove
+     * @return the removed value, or null if <tt>ref</tt> had already been removed
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public T removeAll(Node<T> ref) {
+        return removed(ref, ref.decrement(-1));
+    }
+
+    private T removed(Node<T> ref, int n) {
+        if (n == 0) {
+            return null;
+        }
+        this.length.add(-n);
+        if (ref.count == 0) {
+            this.nodes.remove(ref.value, ref);
+        }
+        return ref.value;
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  a reference to the node with the value to be updated
+     * @param elem the new value
+     * @return a reference to the node now holding <tt>elem</tt>
+     * <p>
+     * The insert of the new value and the removal of the old one are each atomic, but the pair
+     * is not: a concurrent reader may briefly see both values.
+     */
+    public Node<T> update(Node<T> ref, T elem) {
+        Node<T> ret = insert(elem);
+        remove(ref);
+        return ret;
+    }
+
+    /**
+     * Return an iterator over the elements of the collection
+     *
+     * @return a weakly consistent iterator over the elements, in sorted order
+     * <p>
+     * The iterator's <tt>next</tt> and <tt>hasNext</tt> methods never block.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Node<T>> nodeIterator = this.nodes.values().iterator();
+        return new Iterator<T>() {
+            private T value = null;
+            private int remaining = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (remaining == 0 && nodeIterator.hasNext()) {
+                    Node<T> node = nodeIterator.next();
+                    value = node.value;
+                    remaining = node.count;
+                }
+                return remaining > 0;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                return value;
+            }
+        };
+    }
+}
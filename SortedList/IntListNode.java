@@ -0,0 +1,27 @@
+package SortedList;
+
+/**
+ * A node of a {@link IntSortedList}, holding a primitive <tt>int</tt> value and its count.
+ * <p>
+ * Unlike {@link LinkedListNode}, the links are plain (nullable) references, so relinking a node
+ * never allocates.
+ */
+public class IntListNode {
+    public int value;
+    public int count;
+    /**
+     * Next greater node, or null if this is the last node
+     */
+    public IntListNode next;
+    /**
+     * Next lesser node, or null if this is the first node
+     */
+    public IntListNode prev;
+
+    public IntListNode(int value, int count) {
+        this.value = value;
+        this.count = count;
+        this.next = null;
+        this.prev = null;
+    }
+}
@@ -0,0 +1,331 @@
+package SortedList;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A {@link SortedList} specialized for <tt>int</tt> values.
+ * <p>
+ * Values are compared as primitives and nodes are linked with nullable references instead of
+ * <tt>Optional</tt>, so inserting a value that is already in the list, removing one of several
+ * duplicates and iterating all run without allocating. Methods that would return
+ * <tt>Optional.empty()</tt> in SortedList return <tt>null</tt> here.
+ * <p>
+ * The hinted variants behave as in SortedList: if the hint is at position i and the search term
+ * would be at position j, they run in O(|i-j|).
+ */
+public class IntSortedList implements Iterable<Integer> {
+    /**
+     * Reference to the first node in the list, or null if list is empty
+     */
+    public IntListNode headNode;
+    /**
+     * Reference to the last node in the list, or null if list is empty
+     */
+    public IntListNode lastNode;
+    /**
+     * Number of elements in the list (which may be different from number of nodes)
+     */
+    public int length;
+
+    /**
+     * Creates an empty IntSortedList
+     */
+    public IntSortedList() {
+        this.headNode = null;
+        this.lastNode = null;
+        this.length = 0;
+    }
+
+    /**
+     * Find a reference to the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * null if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public IntListNode findRefBefore(int elem) {
+        IntListNode before = null;
+        for (IntListNode current = this.headNode; current != null && current.value <= elem;
+             current = current.next) {
+            before = current;
+        }
+        return before;
+    }
+
+    /**
+     * Find a reference to the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @param hint a reference to a node "close" to <tt>elem</tt>
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * null if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public IntListNode findRefBefore(int elem, IntListNode hint) {
+        IntListNode current = hint;
+        if (current.value <= elem) {
+            while (current.next != null && current.next.value <= elem) {
+                current = current.next;
+            }
+            return current;
+        }
+        while (current != null && current.value > elem) {
+            current = current.prev;
+        }
+        return current;
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @return the node containing <tt>elem</tt>, or null if <tt>elem</tt> is not in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public IntListNode findRef(int elem) {
+        IntListNode before = findRefBefore(elem);
+        return before != null && before.value == elem ? before : null;
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @param hint a reference to a node "close" to <tt>elem</tt>
+     * @return the node containing <tt>elem</tt>, or null if <tt>elem</tt> is not in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public IntListNode findRef(int elem, IntListNode hint) {
+        IntListNode before = findRefBefore(elem, hint);
+        return before != null && before.value == elem ? before : null;
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return the node holding the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     *
+     * This function should run in O(idx)
+     */
+    public IntListNode getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= this.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        IntListNode current = this.headNode;
+        int pos = 0;
+        while (pos + current.count <= idx) {
+            pos += current.count;
+            current = current.next;
+        }
+        return current;
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     *
+     * This function should run in O(idx)
+     */
+    public int get(int idx) throws IndexOutOfBoundsException {
+        return getRef(idx).value;
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return a reference to the node holding the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, the existing node just has its <tt>count</tt>
+     * updated and nothing is allocated.
+     * <p>
+     * This function should run in O(length)
+     */
+    public IntListNode insert(int elem) {
+        return insertAfter(findRefBefore(elem), elem);
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @param hint a reference to a node "close" to <tt>elem</tt>
+     * @return a reference to the node holding the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, the existing node just has its <tt>count</tt>
+     * updated and nothing is allocated.
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public IntListNode insert(int elem, IntListNode hint) {
+        if (hint == null) {
+            return insert(elem);
+        }
+        return insertAfter(findRefBefore(elem, hint), elem);
+    }
+
+    /**
+     * Insert elem given the node that holds it or would precede it
+     */
+    private IntListNode insertAfter(IntListNode before, int elem) {
+        this.length++;
+        if (before != null && before.value == elem) {
+            before.count++;
+            return before;
+        }
+
+        IntListNode node = new IntListNode(elem, 1);
+        IntListNode after = before == null ? this.headNode : before.next;
+        node.prev = before;
+        node.next = after;
+        if (before == null) {
+            this.headNode = node;
+        } else {
+            before.next = node;
+        }
+        if (after == null) {
+            this.lastNode = node;
+        } else {
+            after.prev = node;
+        }
+        return node;
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public int remove(IntListNode ref) {
+        return removeN(ref, 1);
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @param n the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>n</tt> > <tt>ref.count</tt>
+     *
+     * This function should run in O(1)
+     */
+    public int removeN(IntListNode ref, int n) throws IllegalArgumentException {
+        if (ref.count < n) {
+            throw new IllegalArgumentException();
+        }
+        ref.count -= n;
+        this.length -= n;
+        if (ref.count == 0) {
+            unlink(ref);
+        }
+        return ref.value;
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public int removeAll(IntListNode ref) {
+        return removeN(ref, ref.count);
+    }
+
+    private void unlink(IntListNode ref) {
+        if (ref.prev == null) {
+            this.headNode = ref.next;
+        } else {
+            ref.prev.next = ref.next;
+        }
+        if (ref.next == null) {
+            this.lastNode = ref.prev;
+        } else {
+            ref.next.prev = ref.prev;
+        }
+        ref.next = null;
+        ref.prev = null;
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  a reference to the node with the value to be updated
+     * @param elem the new value
+     * @return a reference to the updated node
+     * <p>
+     * If i is the position of ref before the update and j is the position of ref after the update,
+     * then this function should run in O(|i-j|)
+     */
+    public IntListNode update(IntListNode ref, int elem) {
+        IntListNode ret = insert(elem, ref);
+        remove(ref);
+        return ret;
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param idx  the index of the element to be updated
+     * @param elem the new value
+     * @return a reference to the updated node
+     * <p>
+     * This function should run in O(idx)
+     */
+    public IntListNode update(int idx, int elem) {
+        return update(getRef(idx), elem);
+    }
+
+    /**
+     * Return an iterator over the elements of the collection
+     *
+     * @return an iterator over the elements of the collection, in sorted order
+     * <p>
+     * <tt>nextInt</tt> and <tt>hasNext</tt> run in O(1) without boxing.
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private IntListNode current = headNode;
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                int ret = current.value;
+                count++;
+                if (count >= current.count) {
+                    current = current.next;
+                    count = 0;
+                }
+                return ret;
+            }
+        };
+    }
+}
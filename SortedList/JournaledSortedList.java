@@ -0,0 +1,443 @@
+package SortedList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link SortedList} whose mutations are made durable through a write-ahead log.
+ * <p>
+ * Every <tt>insert</tt>, <tt>remove</tt>, <tt>removeN</tt>, <tt>removeAll</tt> and
+ * <tt>update</tt> is applied to the in-memory list and, once it has succeeded, appended as a
+ * small record to a buffer; a mutation that throws (for instance from <tt>compareTo</tt>) leaves
+ * no trace in the log. The buffer is written to the log as one checksummed frame when it fills up
+ * or when <tt>commit</tt> is called, so a whole group of mutations costs a single <tt>write</tt>
+ * (and, depending on the {@link FsyncPolicy}, a single <tt>force</tt>) instead of one per
+ * mutation. Mutations are durable once the commit that covers them returns.
+ * <p>
+ * <tt>checkpoint</tt> writes a {@link SortedListSnapshot} of the list and starts a fresh, empty
+ * log; it also runs on its own once the log grows past a configurable size. Checkpoints and logs
+ * are numbered by generation (<tt>checkpoint-g.slst</tt>, <tt>wal-g.log</tt>), and log g only
+ * holds mutations made after checkpoint g, so on opening the list is recovered by loading the
+ * newest checkpoint and replaying its log. A frame that was torn by a crash fails its checksum
+ * and is discarded along with everything after it. The list is indexed while the log is
+ * replayed, so recovery runs in expected O(length + r log length) for a log of r records.
+ * <p>
+ * Like SortedList, this class is not thread-safe.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class JournaledSortedList<T extends Comparable<T>> implements Iterable<T>, Closeable {
+    /**
+     * When the log is forced to stable storage
+     */
+    public enum FsyncPolicy {
+        /**
+         * Force the log on every commit, so committed mutations survive a power failure
+         */
+        EVERY_COMMIT,
+        /**
+         * Never force the log, leaving it to the operating system; committed mutations survive a
+         * crash of the process but not of the machine
+         */
+        NEVER
+    }
+
+    private static final byte INSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int FRAME_HEADER = 8;
+    private static final int DEFAULT_BATCH_BYTES = 1 << 16;
+    private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private final Path directory;
+    private final KeyCodec<T> codec;
+    private final FsyncPolicy policy;
+    private final long checkpointBytes;
+    private final SortedList<T> list;
+    private final CRC32 crc;
+    private ByteBuffer batch;
+    private long generation;
+    private FileChannel log;
+
+    /**
+     * Opens (or creates) a journaled list in a directory, recovering its contents
+     *
+     * @param directory where the checkpoints and logs are kept
+     * @param codec     the encoding of the values
+     * @param policy    when commits force the log to stable storage
+     * @throws IOException if the directory cannot be read or written, or holds a corrupt
+     *                     checkpoint
+     */
+    public JournaledSortedList(Path directory, KeyCodec<T> codec, FsyncPolicy policy) throws IOException {
+        this(directory, codec, policy, DEFAULT_BATCH_BYTES, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) a journaled list in a directory, recovering its contents
+     *
+     * @param directory       where the checkpoints and logs are kept
+     * @param codec           the encoding of the values
+     * @param policy          when commits force the log to stable storage
+     * @param batchBytes      the size of the record buffer; a full buffer is committed
+     * @param checkpointBytes the log size past which a commit is followed by a checkpoint
+     * @throws IOException if the directory cannot be read or written, or holds a corrupt
+     *                     checkpoint
+     */
+    public JournaledSortedList(Path directory, KeyCodec<T> codec, FsyncPolicy policy,
+                               int batchBytes, long checkpointBytes) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.policy = policy;
+        this.checkpointBytes = checkpointBytes;
+        this.crc = new CRC32();
+        this.batch = ByteBuffer.allocate(batchBytes);
+        this.batch.position(FRAME_HEADER);
+
+        Files.createDirectories(directory);
+        this.generation = newestCheckpoint();
+        this.list = this.generation == 0
+                ? new SortedList<>(true)
+                : SortedListSnapshot.read(checkpointPath(this.generation), codec, true);
+        this.log = FileChannel.open(walPath(this.generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+        this.list.setIndexed(false);
+        deleteOlderThan(this.generation);
+    }
+
+    /**
+     * @return the recovered list; it may be read freely, but must only be modified through this
+     * object
+     */
+    public SortedList<T> list() {
+        return this.list;
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return a reference to the node holding the inserted value
+     * @throws IOException if a full batch could not be committed
+     */
+    public LinkedListNode<T> insert(T elem) throws IOException {
+        reserve(recordBytes(Objects.requireNonNull(elem)));
+        LinkedListNode<T> ret = this.list.insert(elem);
+        append(INSERT, elem, 1);
+        return ret;
+    }
+
+    /**
+     * Insert a new value into the list, starting the search from a hint
+     *
+     * @param elem the value to insert
+     * @param hint a node in the list near where <tt>elem</tt> belongs
+     * @return a reference to the node holding the inserted value
+     * @throws IOException if a full batch could not be committed
+     */
+    public LinkedListNode<T> insert(T elem, LinkedListNode<T> hint) throws IOException {
+        reserve(recordBytes(Objects.requireNonNull(elem)));
+        LinkedListNode<T> ret = this.list.insert(elem, hint);
+        append(INSERT, elem, 1);
+        return ret;
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * @throws IOException if a full batch could not be committed
+     */
+    public T remove(LinkedListNode<T> ref) throws IOException {
+        reserve(recordBytes(ref.value));
+        T ret = this.list.remove(ref);
+        append(REMOVE, ret, 1);
+        return ret;
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @param n   the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>n</tt> > <tt>ref.count</tt>
+     * @throws IOException              if a full batch could not be committed
+     */
+    public T removeN(LinkedListNode<T> ref, int n) throws IllegalArgumentException, IOException {
+        if (n > ref.count) {
+            throw new IllegalArgumentException();
+        }
+        reserve(recordBytes(ref.value));
+        T ret = this.list.removeN(ref, n);
+        append(REMOVE, ret, n);
+        return ret;
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * @throws IOException if a full batch could not be committed
+     */
+    public T removeAll(LinkedListNode<T> ref) throws IOException {
+        int n = ref.count;
+        reserve(recordBytes(ref.value));
+        T ret = this.list.removeAll(ref);
+        append(REMOVE, ret, n);
+        return ret;
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  a reference to the node with the value to be updated
+     * @param elem the new value
+     * @return a reference to the node now holding <tt>elem</tt>
+     * @throws IOException if a full batch could not be committed
+     * <p>
+     * The update is logged as a removal and an insert that always land in the same frame, so
+     * recovery never sees one without the other.
+     */
+    public LinkedListNode<T> update(LinkedListNode<T> ref, T elem) throws IOException {
+        T old = ref.value;
+        reserve(recordBytes(old) + recordBytes(Objects.requireNonNull(elem)));
+        LinkedListNode<T> ret = this.list.update(ref, elem);
+        append(REMOVE, old, 1);
+        append(INSERT, elem, 1);
+        return ret;
+    }
+
+    /**
+     * Write every buffered record to the log as one frame, forcing it to stable storage if the
+     * policy asks for it
+     *
+     * @throws IOException if the log cannot be written
+     * <p>
+     * If the log has grown past the checkpoint size, a checkpoint follows.
+     */
+    public void commit() throws IOException {
+        if (this.batch.position() > FRAME_HEADER) {
+            this.crc.reset();
+            this.crc.update(this.batch.array(), FRAME_HEADER, this.batch.position() - FRAME_HEADER);
+            this.batch.putInt(0, this.batch.position() - FRAME_HEADER);
+            this.batch.putInt(4, (int) this.crc.getValue());
+            this.batch.flip();
+            while (this.batch.hasRemaining()) {
+                this.log.write(this.batch);
+            }
+            this.batch.clear();
+            this.batch.position(FRAME_HEADER);
+            if (this.policy == FsyncPolicy.EVERY_COMMIT) {
+                this.log.force(false);
+            }
+        }
+        if (this.log.size() >= this.checkpointBytes) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Write a snapshot of the list and start a new, empty log
+     *
+     * @throws IOException if the snapshot or the new log cannot be written
+     * <p>
+     * The snapshot is written to a temporary file and renamed into place, and the directory is
+     * forced before the previous generation is deleted, so a crash during a checkpoint leaves
+     * either the new checkpoint or the previous checkpoint and its log intact. This function
+     * should run in O(length).
+     */
+    public void checkpoint() throws IOException {
+        if (this.batch.position() > FRAME_HEADER) {
+            commit();
+        }
+        long next = this.generation + 1;
+        Path tmp = this.directory.resolve("checkpoint.tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            this.list.writeTo(out, this.codec);
+            out.force(true);
+        }
+        Files.move(tmp, checkpointPath(next), StandardCopyOption.ATOMIC_MOVE);
+
+        FileChannel old = this.log;
+        this.log = FileChannel.open(walPath(next),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        old.close();
+        forceDirectory();
+        this.generation = next;
+        deleteOlderThan(next);
+    }
+
+    /**
+     * Commit any buffered records and close the log
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+            this.log.force(false);
+        } finally {
+            this.log.close();
+        }
+    }
+
+    /**
+     * Return an iterator over the elements of the list
+     *
+     * @return an iterator over the elements, in sorted order
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return this.list.iterator();
+    }
+
+    private int recordBytes(T value) {
+        return 1 + this.codec.maxBytes(value) + 5;
+    }
+
+    /**
+     * Make room for <tt>bytes</tt> more bytes of records in the current frame, committing it if
+     * it is full
+     */
+    private void reserve(int bytes) throws IOException {
+        if (this.batch.remaining() < bytes) {
+            commit();
+            if (this.batch.remaining() < bytes) {
+                this.batch = ByteBuffer.allocate(FRAME_HEADER + bytes);
+                this.batch.position(FRAME_HEADER);
+            }
+        }
+    }
+
+    private void append(byte op, T value, int n) {
+        this.batch.put(op);
+        this.codec.write(this.batch, null, value);
+        KeyCodec.writeVarLong(this.batch, n);
+    }
+
+    /**
+     * Apply every intact frame of the current log to the list, and cut the log after the last
+     * one
+     * <p>
+     * The log is read into a heap buffer rather than mapped: truncating a file while a mapping of
+     * it is live fails on Windows, and touching the mapping afterwards can fault elsewhere.
+     */
+    private void replay() throws IOException {
+        long size = this.log.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Log too large to replay: " + walPath(this.generation));
+        }
+        ByteBuffer in = ByteBuffer.allocate((int) size);
+        while (in.hasRemaining()) {
+            if (this.log.read(in, in.position()) < 0) {
+                break;
+            }
+        }
+        in.flip();
+        int end = 0;
+        while (in.remaining() >= FRAME_HEADER) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 0 || length > in.remaining()) {
+                break;
+            }
+            ByteBuffer frame = in.slice(in.position(), length);
+            this.crc.reset();
+            this.crc.update(frame.duplicate());
+            if ((int) this.crc.getValue() != checksum) {
+                break;
+            }
+            while (frame.hasRemaining()) {
+                redo(frame);
+            }
+            in.position(in.position() + length);
+            end = in.position();
+        }
+        this.log.truncate(end);
+        this.log.position(end);
+    }
+
+    private void redo(ByteBuffer frame) throws IOException {
+        byte op = frame.get();
+        T value = this.codec.read(frame, null);
+        long count = KeyCodec.readVarLong(frame);
+        if (count < 1 || count > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt log: count " + count + " for " + value);
+        }
+        int n = (int) count;
+        if (op == INSERT) {
+            this.list.insertN(value, n);
+        } else if (op == REMOVE) {
+            LinkedListNode<T> ref = this.list.findRef(value).orElse(null);
+            if (ref == null || ref.count < n) {
+                throw new IOException("Corrupt log: cannot remove " + n + " of " + value);
+            }
+            this.list.removeN(ref, n);
+        } else {
+            throw new IOException("Corrupt log: unknown record type " + op);
+        }
+    }
+
+    /**
+     * Force the directory entries (the renamed checkpoint and the new log) to stable storage
+     */
+    private void forceDirectory() throws IOException {
+        FileChannel dir;
+        try {
+            dir = FileChannel.open(this.directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms (Windows) cannot open a directory; renames are durable there anyway
+            return;
+        }
+        try (dir) {
+            dir.force(true);
+        }
+    }
+
+    private long newestCheckpoint() throws IOException {
+        long newest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "checkpoint-*.slst")) {
+            for (Path file : files) {
+                newest = Math.max(newest, generationOf(file));
+            }
+        }
+        return newest;
+    }
+
+    private void deleteOlderThan(long generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "{checkpoint-*.slst,wal-*.log}")) {
+            for (Path file : files) {
+                if (generationOf(file) < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private Path checkpointPath(long generation) {
+        return this.directory.resolve("checkpoint-" + generation + ".slst");
+    }
+
+    private Path walPath(long generation) {
+        return this.directory.resolve("wal-" + generation + ".log");
+    }
+}
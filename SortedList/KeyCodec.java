@@ -0,0 +1,158 @@
+package SortedList;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of the values of a {@link SortedList}, used by snapshots and the write-ahead
+ * log.
+ * <p>
+ * Values are written in sorted order, and each value may be encoded relative to the one written
+ * before it. The numeric codecs use this to store the (small, non-negative) gap between
+ * consecutive keys as a zig-zag varint instead of the full key.
+ *
+ * @param <T> The type of value encoded
+ */
+public interface KeyCodec<T> {
+    /**
+     * <tt>Integer</tt> keys, delta and varint encoded
+     */
+    KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+        @Override
+        public byte id() {
+            return 1;
+        }
+
+        @Override
+        public int maxBytes(Integer value) {
+            return 10;
+        }
+
+        @Override
+        public void write(ByteBuffer out, Integer previous, Integer value) {
+            writeVarLong(out, zigZag((long) value - (previous == null ? 0 : previous)));
+        }
+
+        @Override
+        public Integer read(ByteBuffer in, Integer previous) {
+            return (int) ((previous == null ? 0 : previous) + unZigZag(readVarLong(in)));
+        }
+    };
+
+    /**
+     * <tt>Long</tt> keys, delta and varint encoded
+     */
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public byte id() {
+            return 2;
+        }
+
+        @Override
+        public int maxBytes(Long value) {
+            return 10;
+        }
+
+        @Override
+        public void write(ByteBuffer out, Long previous, Long value) {
+            writeVarLong(out, zigZag(value - (previous == null ? 0 : previous)));
+        }
+
+        @Override
+        public Long read(ByteBuffer in, Long previous) {
+            return (previous == null ? 0 : previous) + unZigZag(readVarLong(in));
+        }
+    };
+
+    /**
+     * <tt>String</tt> keys, as length-prefixed UTF-8
+     */
+    KeyCodec<String> STRING = new KeyCodec<String>() {
+        @Override
+        public byte id() {
+            return 3;
+        }
+
+        @Override
+        public int maxBytes(String value) {
+            return 5 + 3 * value.length();
+        }
+
+        @Override
+        public void write(ByteBuffer out, String previous, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.put(bytes);
+        }
+
+        @Override
+        public String read(ByteBuffer in, String previous) {
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * @return a number identifying the encoding, stored in file headers so that a file is never
+     * decoded with the wrong codec
+     */
+    byte id();
+
+    /**
+     * @return an upper bound on the number of bytes <tt>write</tt> produces for <tt>value</tt>
+     */
+    int maxBytes(T value);
+
+    /**
+     * Encode a value
+     *
+     * @param out      the buffer to write to, with at least <tt>maxBytes(value)</tt> remaining
+     * @param previous the value written just before, or null if this is the first one
+     * @param value    the value to write
+     */
+    void write(ByteBuffer out, T previous, T value);
+
+    /**
+     * Decode a value
+     *
+     * @param in       the buffer to read from
+     * @param previous the value read just before, or null if this is the first one
+     * @return the value read
+     */
+    T read(ByteBuffer in, T previous);
+
+    /**
+     * Write an unsigned varint: 7 bits per byte, least significant first, high bit set on every
+     * byte but the last
+     */
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned varint written by <tt>writeVarLong</tt>
+     */
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -1,3 +1,5 @@
+package SortedList;
+
 import java.util.Optional;
 
 public class LinkedListNode<T> {
@@ -5,11 +7,42 @@ public class LinkedListNode<T> {
     public int count;
     public Optional<LinkedListNode<T>> next;
     public Optional<LinkedListNode<T>> prev;
+    /**
+     * Forward links of this node's skip-list tower (index levels 1 and up), or null if the node
+     * only sits on the base chain
+     */
+    public LinkedListNode<T>[] skip;
+    /**
+     * Number of elements, counting duplicates, from this node up to the target of each link in
+     * <tt>skip</tt> (this node included, the target excluded)
+     */
+    public int[] span;
+    /**
+     * <tt>Optional.of(this)</tt>, created once so that linking and returning the node never
+     * allocates
+     */
+    private final Optional<LinkedListNode<T>> self;
 
     public LinkedListNode(T value, int count) {
         this.value = value;
         this.count = count;
         this.next = Optional.empty();
         this.prev = Optional.empty();
+        this.self = Optional.of(this);
+    }
+
+    /**
+     * @return <tt>Optional.of(this)</tt>, without allocating
+     */
+    public Optional<LinkedListNode<T>> ref() {
+        return this.self;
+    }
+
+    /**
+     * @return a new array of <tt>length</tt> null node references
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static <T> LinkedListNode<T>[] newArray(int length) {
+        return (LinkedListNode<T>[]) new LinkedListNode[length];
     }
 }
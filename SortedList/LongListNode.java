@@ -0,0 +1,27 @@
+package SortedList;
+
+/**
+ * A node of a {@link LongSortedList}, holding a primitive <tt>long</tt> value and its count.
+ * <p>
+ * Unlike {@link LinkedListNode}, the links are plain (nullable) references, so relinking a node
+ * never allocates.
+ */
+public class LongListNode {
+    public long value;
+    public int count;
+    /**
+     * Next greater node, or null if this is the last node
+     */
+    public LongListNode next;
+    /**
+     * Next lesser node, or null if this is the first node
+     */
+    public LongListNode prev;
+
+    public LongListNode(long value, int count) {
+        this.value = value;
+        this.count = count;
+        this.next = null;
+        this.prev = null;
+    }
+}
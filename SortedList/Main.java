@@ -1,4 +1,5 @@
-import SortedList.SortedList;
+package SortedList;
+
 import java.util.Optional;
 import java.util.Random;
 
@@ -7,6 +8,7 @@ public class Main {
         System.out.println("Rolling a d20 1000000 times");
 
         SortedList<Integer> rolls = new SortedList<Integer>();
+        rolls.setAdaptiveHashLookup(true);
         Random random = new Random();
 
         for (int i = 0; i < 1000000; i++) {
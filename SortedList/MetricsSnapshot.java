@@ -0,0 +1,126 @@
+package SortedList;
+
+import SortedList.SortedListMetrics.Operation;
+
+/**
+ * An immutable copy of what a {@link RecordingMetrics} has recorded.
+ * <p>
+ * Every figure is kept separately for the hinted and the unhinted variant of each operation, so
+ * the hop counts of hinted calls (which should stay small if the hints are good) can be compared
+ * against those of unhinted calls on the same list. Latencies and hop counts are kept as
+ * histograms with power-of-two buckets; percentiles report the upper bound of the bucket they
+ * fall in.
+ */
+public final class MetricsSnapshot {
+    /**
+     * Number of histogram buckets; bucket <tt>b</tt> holds values in <tt>[2^(b-1), 2^b)</tt>
+     */
+    static final int BUCKETS = 65;
+
+    private final long[] counts;
+    private final long[] comparisons;
+    private final long[] hops;
+    private final long[][] latencies;
+    private final long[][] hopHistograms;
+    private final long worstHintHops;
+    private final String worstHintCaller;
+
+    MetricsSnapshot(long[] counts, long[] comparisons, long[] hops, long[][] latencies,
+                    long[][] hopHistograms, long worstHintHops, String worstHintCaller) {
+        this.counts = counts;
+        this.comparisons = comparisons;
+        this.hops = hops;
+        this.latencies = latencies;
+        this.hopHistograms = hopHistograms;
+        this.worstHintHops = worstHintHops;
+        this.worstHintCaller = worstHintCaller;
+    }
+
+    static int key(Operation op, boolean hinted) {
+        return op.ordinal() * 2 + (hinted ? 1 : 0);
+    }
+
+    static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(value, 0));
+    }
+
+    /**
+     * @return the number of times the operation ran
+     */
+    public long count(Operation op, boolean hinted) {
+        return this.counts[key(op, hinted)];
+    }
+
+    /**
+     * @return the number of <tt>compareTo</tt> calls the operation made in total
+     */
+    public long comparisons(Operation op, boolean hinted) {
+        return this.comparisons[key(op, hinted)];
+    }
+
+    /**
+     * @return the number of node-to-node steps the operation made in total
+     */
+    public long hops(Operation op, boolean hinted) {
+        return this.hops[key(op, hinted)];
+    }
+
+    /**
+     * @return the mean number of node-to-node steps per call, or 0 if the operation never ran
+     */
+    public double meanHops(Operation op, boolean hinted) {
+        long count = count(op, hinted);
+        return count == 0 ? 0 : (double) hops(op, hinted) / count;
+    }
+
+    /**
+     * @param q a quantile between 0 and 1
+     * @return an upper bound on the <tt>q</tt> quantile of the operation's latency in
+     * nanoseconds, or 0 if the operation never ran
+     */
+    public long latencyPercentile(Operation op, boolean hinted, double q) {
+        return percentile(this.latencies[key(op, hinted)], q);
+    }
+
+    /**
+     * @param q a quantile between 0 and 1
+     * @return an upper bound on the <tt>q</tt> quantile of the number of node-to-node steps per
+     * call, or 0 if the operation never ran
+     */
+    public long hopPercentile(Operation op, boolean hinted, double q) {
+        return percentile(this.hopHistograms[key(op, hinted)], q);
+    }
+
+    /**
+     * @return the largest number of steps any hinted operation took
+     */
+    public long worstHintHops() {
+        return this.worstHintHops;
+    }
+
+    /**
+     * @return the stack trace of the call that passed the worst hint, or an empty string
+     */
+    public String worstHintCaller() {
+        return this.worstHintCaller;
+    }
+
+    private static long percentile(long[] histogram, double q) {
+        long total = 0;
+        for (long n : histogram) {
+            total += n;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= Math.max(target, 1)) {
+                return b == 0 ? 0 : b >= 63 ? Long.MAX_VALUE : (1L << b) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,492 @@
+package SortedList;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An off-heap counterpart to {@link LongSortedList}: a sorted list of <tt>long</tt>s whose nodes
+ * live outside the Java heap.
+ * <p>
+ * Each node is a fixed-width record of (key, count, prev, next) in a direct
+ * <tt>ByteBuffer</tt>, allocated in segments of {@link #SEGMENT_SLOTS} records as the list
+ * grows. Callers refer to nodes by their int slot number, as with {@link ArraySortedList}, and
+ * slots released by the <tt>remove</tt> family go onto a free list (threaded through the
+ * <tt>next</tt> field) for later inserts to reuse.
+ * <p>
+ * The heap only holds the array of segment buffers, so the garbage collector never traces the
+ * nodes, and heap size and collection pauses stay the same whatever the size of the list.
+ * <p>
+ * Segments are never shrunk while the list holds any node: slots freed by removals are kept on
+ * the free list for reuse, so <tt>offHeapBytes</tt> stays at the high-water mark of the list.
+ * Once the last node is removed, every segment but the first is dropped, and its memory is
+ * returned to the operating system when the garbage collector reclaims the buffer (as for any
+ * direct <tt>ByteBuffer</tt>); the same happens to all of them when the list itself becomes
+ * unreachable. Keeping the first segment means a list that is repeatedly emptied and refilled
+ * with fewer than <tt>SEGMENT_SLOTS</tt> nodes never calls <tt>allocateDirect</tt> again.
+ * <p>
+ * A slot number stays valid for as long as its node is in the list. The methods and their running
+ * times otherwise follow LongSortedList, with <tt>NIL</tt> taking the place of <tt>null</tt>.
+ */
+public class OffHeapLongSortedList implements Iterable<Long> {
+    /**
+     * Slot number standing for "no node"
+     */
+    public static final int NIL = -1;
+    /**
+     * Number of records in each off-heap segment
+     */
+    public static final int SEGMENT_SLOTS = 1 << 16;
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SLOT_MASK = SEGMENT_SLOTS - 1;
+    private static final int RECORD_BYTES = 24;
+    private static final int KEY = 0;
+    private static final int COUNT = 8;
+    private static final int PREV = 12;
+    private static final int NEXT = 16;
+
+    private ByteBuffer[] segments;
+    /**
+     * Head of the free list, or NIL if every allocated slot is in use
+     */
+    private int free;
+    /**
+     * Number of slots ever handed out; slots at or above this number have never been used
+     */
+    private int used;
+
+    /**
+     * Slot of the first node in the list, or NIL if list is empty
+     */
+    private int headNode;
+    /**
+     * Slot of the last node in the list, or NIL if list is empty
+     */
+    private int lastNode;
+    /**
+     * Number of elements in the list (which may be different from number of nodes)
+     */
+    private int length;
+    /**
+     * Number of nodes in the list
+     */
+    private int nodes;
+
+    /**
+     * Creates an empty OffHeapLongSortedList
+     */
+    public OffHeapLongSortedList() {
+        this.segments = new ByteBuffer[0];
+        this.free = NIL;
+        this.used = 0;
+        this.headNode = NIL;
+        this.lastNode = NIL;
+        this.length = 0;
+        this.nodes = 0;
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * @return the number of distinct values (nodes) in the list
+     */
+    public int nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory held by the list
+     */
+    public long offHeapBytes() {
+        return (long) this.segments.length * SEGMENT_SLOTS * RECORD_BYTES;
+    }
+
+    /**
+     * @return the slot of the first node, or NIL if the list is empty
+     */
+    public int headNode() {
+        return this.headNode;
+    }
+
+    /**
+     * @return the slot of the last node, or NIL if the list is empty
+     */
+    public int lastNode() {
+        return this.lastNode;
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the value held by <tt>ref</tt>
+     */
+    public long value(int ref) {
+        return segment(ref).getLong(offset(ref) + KEY);
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the number of instances of the value held by <tt>ref</tt>
+     */
+    public int count(int ref) {
+        return segment(ref).getInt(offset(ref) + COUNT);
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the node holding the next greater value, or NIL if <tt>ref</tt> is the last node
+     */
+    public int next(int ref) {
+        return segment(ref).getInt(offset(ref) + NEXT);
+    }
+
+    /**
+     * @param ref a node in the list
+     * @return the node holding the next lesser value, or NIL if <tt>ref</tt> is the first node
+     */
+    public int prev(int ref) {
+        return segment(ref).getInt(offset(ref) + PREV);
+    }
+
+    /**
+     * Find the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * NIL if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public int findRefBefore(long elem) {
+        int before = NIL;
+        for (int current = this.headNode; current != NIL && value(current) <= elem;
+             current = next(current)) {
+            before = current;
+        }
+        return before;
+    }
+
+    /**
+     * Find the node holding elem, or the node that would precede it
+     *
+     * @param elem the element to find
+     * @param hint a node "close" to <tt>elem</tt>
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * NIL if <tt>elem</tt> is smaller than the smallest element in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int findRefBefore(long elem, int hint) {
+        int current = hint;
+        if (value(current) <= elem) {
+            while (next(current) != NIL && value(next(current)) <= elem) {
+                current = next(current);
+            }
+            return current;
+        }
+        while (current != NIL && value(current) > elem) {
+            current = prev(current);
+        }
+        return current;
+    }
+
+    /**
+     * Find the node holding the specified element
+     *
+     * @param elem the element to find
+     * @return the node containing <tt>elem</tt>, or NIL if <tt>elem</tt> is not in the list
+     * <p>
+     * This function should run in O(length)
+     */
+    public int findRef(long elem) {
+        return matching(findRefBefore(elem), elem);
+    }
+
+    /**
+     * Find the node holding the specified element
+     *
+     * @param elem the element to find
+     * @param hint a node "close" to <tt>elem</tt>
+     * @return the node containing <tt>elem</tt>, or NIL if <tt>elem</tt> is not in the list
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int findRef(long elem, int hint) {
+        return matching(findRefBefore(elem, hint), elem);
+    }
+
+    private int matching(int before, long elem) {
+        return before != NIL && value(before) == elem ? before : NIL;
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return the node holding the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * This function should run in O(idx)
+     */
+    public int getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= this.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int current = this.headNode;
+        int pos = 0;
+        while (pos + count(current) <= idx) {
+            pos += count(current);
+            current = next(current);
+        }
+        return current;
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * This function should run in O(idx)
+     */
+    public long get(int idx) throws IndexOutOfBoundsException {
+        return value(getRef(idx));
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @return the node holding the inserted value
+     * <p>
+     * If <tt>elem</tt> is already in the list, the existing node just has its count updated.
+     * <p>
+     * This function should run in O(length)
+     */
+    public int insert(long elem) {
+        return insertAfter(findRefBefore(elem), elem);
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * @param hint a node "close" to <tt>elem</tt>, or NIL
+     * @return the node holding the inserted value
+     * <p>
+     * If <tt>hint</tt> is at position i, and <tt>elem</tt> would be at position j, then this
+     * function should run in O(|i-j|)
+     */
+    public int insert(long elem, int hint) {
+        if (hint == NIL) {
+            return insert(elem);
+        }
+        return insertAfter(findRefBefore(elem, hint), elem);
+    }
+
+    private int insertAfter(int before, long elem) {
+        this.length++;
+        if (matching(before, elem) != NIL) {
+            setCount(before, count(before) + 1);
+            return before;
+        }
+
+        int node = allocate(elem);
+        int after = before == NIL ? this.headNode : next(before);
+        setPrev(node, before);
+        setNext(node, after);
+        if (before == NIL) {
+            this.headNode = node;
+        } else {
+            setNext(before, node);
+        }
+        if (after == NIL) {
+            this.lastNode = node;
+        } else {
+            setPrev(after, node);
+        }
+        return node;
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public long remove(int ref) {
+        return removeN(ref, 1);
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @param n   the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>n</tt> > the count of <tt>ref</tt>
+     * <p>
+     * If the node is emptied, its slot is released and may be reused by a later insert.
+     * <p>
+     * This function should run in O(1)
+     */
+    public long removeN(int ref, int n) throws IllegalArgumentException {
+        int count = count(ref);
+        if (count < n) {
+            throw new IllegalArgumentException();
+        }
+        long ret = value(ref);
+        setCount(ref, count - n);
+        this.length -= n;
+        if (count == n) {
+            unlink(ref);
+            release(ref);
+        }
+        return ret;
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * This function should run in O(1)
+     */
+    public long removeAll(int ref) {
+        return removeN(ref, count(ref));
+    }
+
+    /**
+     * Modifies a single value presently in the list
+     *
+     * @param ref  the node with the value to be updated
+     * @param elem the new value
+     * @return the node now holding <tt>elem</tt>
+     * <p>
+     * If i is the position of ref before the update and j is the position of ref after the update,
+     * then this function should run in O(|i-j|)
+     */
+    public int update(int ref, long elem) {
+        int ret = insert(elem, ref);
+        remove(ref);
+        return ret;
+    }
+
+    /**
+     * Return an iterator over the elements of the collection
+     *
+     * @return an iterator over the elements of the collection, in sorted order
+     * <p>
+     * <tt>nextLong</tt> and <tt>hasNext</tt> run in O(1) without boxing.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int current = headNode;
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return current != NIL;
+            }
+
+            @Override
+            public long nextLong() {
+                if (current == NIL) {
+                    throw new NoSuchElementException();
+                }
+                long ret = value(current);
+                count++;
+                if (count >= OffHeapLongSortedList.this.count(current)) {
+                    current = OffHeapLongSortedList.this.next(current);
+                    count = 0;
+                }
+                return ret;
+            }
+        };
+    }
+
+    private ByteBuffer segment(int ref) {
+        return this.segments[ref >>> SEGMENT_SHIFT];
+    }
+
+    private static int offset(int ref) {
+        return (ref & SLOT_MASK) * RECORD_BYTES;
+    }
+
+    private void setCount(int ref, int count) {
+        segment(ref).putInt(offset(ref) + COUNT, count);
+    }
+
+    private void setNext(int ref, int next) {
+        segment(ref).putInt(offset(ref) + NEXT, next);
+    }
+
+    private void setPrev(int ref, int prev) {
+        segment(ref).putInt(offset(ref) + PREV, prev);
+    }
+
+    private void unlink(int ref) {
+        int before = prev(ref);
+        int after = next(ref);
+        if (before == NIL) {
+            this.headNode = after;
+        } else {
+            setNext(before, after);
+        }
+        if (after == NIL) {
+            this.lastNode = before;
+        } else {
+            setPrev(after, before);
+        }
+    }
+
+    private int allocate(long elem) {
+        int slot;
+        if (this.free != NIL) {
+            slot = this.free;
+            this.free = next(slot);
+        } else {
+            if (this.used == this.segments.length * SEGMENT_SLOTS) {
+                grow();
+            }
+            slot = this.used++;
+        }
+        segment(slot).putLong(offset(slot) + KEY, elem);
+        setCount(slot, 1);
+        this.nodes++;
+        return slot;
+    }
+
+    private void release(int ref) {
+        setPrev(ref, NIL);
+        setNext(ref, this.free);
+        this.free = ref;
+        if (--this.nodes == 0) {
+            if (this.segments.length > 1) {
+                this.segments = Arrays.copyOf(this.segments, 1);
+            }
+            this.free = NIL;
+            this.used = 0;
+        }
+    }
+
+    private void grow() {
+        int n = this.segments.length;
+        this.segments = Arrays.copyOf(this.segments, n + 1);
+        this.segments[n] = ByteBuffer.allocateDirect(SEGMENT_SLOTS * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,460 @@
+package SortedList;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted list with persistent, structurally shared versions.
+ * <p>
+ * Like {@link SortedList}, the list stores each distinct value once with a count, but the nodes
+ * live in an immutable AVL tree instead of a linked chain. A mutation never changes a node: it
+ * copies the O(log n) nodes on the path from the root to the value, shares every other subtree
+ * with the previous version, and then publishes the new root. Each node also records the number
+ * of elements (counting duplicates) in its subtree, so positions are found in O(log n) too.
+ * <p>
+ * <tt>snapshot</tt> just captures the current root, so it runs in O(1) whatever the size of the
+ * list. A snapshot is an immutable version that can be read and iterated from any thread while
+ * the writer keeps going, and it holds on to only the nodes that have been replaced since.
+ * <p>
+ * The list itself expects a single writer at a time. The root is published through a volatile
+ * field, so readers on other threads always take consistent snapshots.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class PersistentSortedList<T extends Comparable<T>> implements Iterable<T> {
+    /**
+     * An immutable node of the tree, holding a value, its count, and the size of its subtree
+     */
+    private static final class Node<T> {
+        final T value;
+        final int count;
+        final Node<T> left;
+        final Node<T> right;
+        final int height;
+        /**
+         * Number of elements, counting duplicates, in the subtree rooted here
+         */
+        final int size;
+
+        Node(T value, int count, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.count = count;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + count + size(right);
+        }
+    }
+
+    /**
+     * An immutable version of a PersistentSortedList
+     */
+    public static final class Snapshot<T extends Comparable<T>> implements Iterable<T> {
+        private final Node<T> root;
+
+        private Snapshot(Node<T> root) {
+            this.root = root;
+        }
+
+        /**
+         * @return the number of elements in this version
+         */
+        public int length() {
+            return size(this.root);
+        }
+
+        /**
+         * @param elem a value
+         * @return the number of instances of <tt>elem</tt> in this version
+         * <p>
+         * This function should run in O(log length)
+         */
+        public int count(T elem) {
+            return PersistentSortedList.count(this.root, elem);
+        }
+
+        /**
+         * @param elem a value
+         * @return the number of elements in this version that are less than <tt>elem</tt>
+         * <p>
+         * This function should run in O(log length)
+         */
+        public int rank(T elem) {
+            return PersistentSortedList.rank(this.root, elem);
+        }
+
+        /**
+         * @param idx the index to look up
+         * @return the value at index <tt>idx</tt> of this version
+         * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+         * <p>
+         * This function should run in O(log length)
+         */
+        public T get(int idx) throws IndexOutOfBoundsException {
+            return PersistentSortedList.get(this.root, idx);
+        }
+
+        /**
+         * @return an iterator over the elements of this version, in sorted order
+         */
+        @Override
+        public Iterator<T> iterator() {
+            return new TreeIterator<>(this.root);
+        }
+    }
+
+    private volatile Node<T> root;
+
+    /**
+     * Creates an empty PersistentSortedList
+     */
+    public PersistentSortedList() {
+        this.root = null;
+    }
+
+    /**
+     * Build a PersistentSortedList holding the same elements as a SortedList
+     *
+     * @param list the list to copy
+     * @return a list with the contents of <tt>list</tt>
+     * <p>
+     * The chain is already sorted, so the tree is built balanced in one pass and this function
+     * should run in O(length).
+     */
+    public static <T extends Comparable<T>> PersistentSortedList<T> copyOf(SortedList<T> list) {
+        int nodes = 0;
+        for (LinkedListNode<T> x = list.headNode; x != null; x = x.next.orElse(null)) {
+            nodes++;
+        }
+        PersistentSortedList<T> ret = new PersistentSortedList<>();
+        Iterator<LinkedListNode<T>> chain = list.entries().iterator();
+        ret.root = build(chain, nodes);
+        return ret;
+    }
+
+    private static <T> Node<T> build(Iterator<LinkedListNode<T>> chain, int nodes) {
+        if (nodes == 0) {
+            return null;
+        }
+        Node<T> left = build(chain, nodes / 2);
+        LinkedListNode<T> x = chain.next();
+        Node<T> right = build(chain, nodes - nodes / 2 - 1);
+        return new Node<>(x.value, x.count, left, right);
+    }
+
+    /**
+     * Capture the current version of the list
+     *
+     * @return an immutable view of the list as it is now, unaffected by later mutations
+     * <p>
+     * This function should run in O(1)
+     */
+    public Snapshot<T> snapshot() {
+        return new Snapshot<>(this.root);
+    }
+
+    /**
+     * @return the number of elements in the list
+     */
+    public int length() {
+        return size(this.root);
+    }
+
+    /**
+     * @param elem a value
+     * @return the number of instances of <tt>elem</tt> in the list
+     * <p>
+     * This function should run in O(log length)
+     */
+    public int count(T elem) {
+        return count(this.root, elem);
+    }
+
+    /**
+     * @param elem a value
+     * @return the number of elements in the list that are less than <tt>elem</tt>
+     * <p>
+     * This function should run in O(log length)
+     */
+    public int rank(T elem) {
+        return rank(this.root, elem);
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * This function should run in O(log length)
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return get(this.root, idx);
+    }
+
+    /**
+     * Insert a new value into the list
+     *
+     * @param elem the value to insert
+     * <p>
+     * If <tt>elem</tt> is already in the list, its node is replaced by a copy with the count
+     * incremented. This function should run in O(log length).
+     */
+    public void insert(T elem) {
+        insertN(elem, 1);
+    }
+
+    /**
+     * Insert n instances of a value into the list
+     *
+     * @param elem the value to insert
+     * @param n    the number of instances to insert
+     * @throws IllegalArgumentException if <tt>n</tt> < 1
+     * <p>
+     * This function should run in O(log length)
+     */
+    public void insertN(T elem, int n) throws IllegalArgumentException {
+        if (n < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.root = insert(this.root, elem, n);
+    }
+
+    /**
+     * Remove one instance of a value from the list
+     *
+     * @param elem the value to remove
+     * @return true if the list held <tt>elem</tt>
+     * <p>
+     * This function should run in O(log length)
+     */
+    public boolean remove(T elem) {
+        return removeN(elem, 1) > 0;
+    }
+
+    /**
+     * Remove up to n instances of a value from the list
+     *
+     * @param elem the value to remove
+     * @param n    the most instances to remove
+     * @return the number of instances removed
+     * <p>
+     * This function should run in O(log length)
+     */
+    public int removeN(T elem, int n) {
+        int removed = Math.min(n, count(this.root, elem));
+        if (removed > 0) {
+            this.root = remove(this.root, elem, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all instances of a value from the list
+     *
+     * @param elem the value to remove
+     * @return the number of instances removed
+     * <p>
+     * This function should run in O(log length)
+     */
+    public int removeAll(T elem) {
+        return removeN(elem, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Replace one instance of a value with another
+     *
+     * @param old  the value to replace, which must be in the list
+     * @param elem the new value
+     * @throws NoSuchElementException if <tt>old</tt> is not in the list
+     * <p>
+     * Both changes are published together, so no snapshot sees only one of them. This function
+     * should run in O(log length).
+     */
+    public void update(T old, T elem) throws NoSuchElementException {
+        Node<T> current = this.root;
+        if (count(current, old) == 0) {
+            throw new NoSuchElementException();
+        }
+        this.root = insert(remove(current, old, 1), elem, 1);
+    }
+
+    /**
+     * Return an iterator over the elements of the list
+     *
+     * @return an iterator over the elements of the current version, in sorted order
+     * <p>
+     * The iterator works on the version that was current when it was created, so mutations made
+     * while iterating are not visible to it and never invalidate it.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new TreeIterator<>(this.root);
+    }
+
+    private static <T> int height(Node<T> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <T> int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static <T extends Comparable<T>> int count(Node<T> node, T elem) {
+        while (node != null) {
+            int cmp = elem.compareTo(node.value);
+            if (cmp == 0) {
+                return node.count;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return 0;
+    }
+
+    private static <T extends Comparable<T>> int rank(Node<T> node, T elem) {
+        int rank = 0;
+        while (node != null) {
+            int cmp = elem.compareTo(node.value);
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    return rank + size(node.left);
+                }
+                node = node.left;
+            } else {
+                rank += size(node.left) + node.count;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    private static <T> T get(Node<T> node, int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= size(node)) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (true) {
+            int leftSize = size(node.left);
+            if (idx < leftSize) {
+                node = node.left;
+            } else if (idx < leftSize + node.count) {
+                return node.value;
+            } else {
+                idx -= leftSize + node.count;
+                node = node.right;
+            }
+        }
+    }
+
+    private static <T extends Comparable<T>> Node<T> insert(Node<T> node, T elem, int n) {
+        if (node == null) {
+            return new Node<>(elem, n, null, null);
+        }
+        int cmp = elem.compareTo(node.value);
+        if (cmp == 0) {
+            return new Node<>(node.value, node.count + n, node.left, node.right);
+        } else if (cmp < 0) {
+            return balance(node.value, node.count, insert(node.left, elem, n), node.right);
+        } else {
+            return balance(node.value, node.count, node.left, insert(node.right, elem, n));
+        }
+    }
+
+    /**
+     * Remove n instances of elem, which the subtree must hold at least n of
+     */
+    private static <T extends Comparable<T>> Node<T> remove(Node<T> node, T elem, int n) {
+        int cmp = elem.compareTo(node.value);
+        if (cmp < 0) {
+            return balance(node.value, node.count, remove(node.left, elem, n), node.right);
+        } else if (cmp > 0) {
+            return balance(node.value, node.count, node.left, remove(node.right, elem, n));
+        } else if (node.count > n) {
+            return new Node<>(node.value, node.count - n, node.left, node.right);
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        Node<T> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.value, successor.count, node.left, removeMin(node.right));
+    }
+
+    private static <T> Node<T> removeMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.value, node.count, removeMin(node.left), node.right);
+    }
+
+    /**
+     * Build a node from two subtrees whose heights differ by at most 2, rotating if needed
+     */
+    private static <T> Node<T> balance(T value, int count, Node<T> left, Node<T> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.value, left.count, left.left, left.right);
+            }
+            return new Node<>(left.value, left.count, left.left,
+                    new Node<>(value, count, left.right, right));
+        } else if (diff < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.value, right.count, right.left, right.right);
+            }
+            return new Node<>(right.value, right.count,
+                    new Node<>(value, count, left, right.left), right.right);
+        }
+        return new Node<>(value, count, left, right);
+    }
+
+    private static <T> Node<T> rotateLeft(T value, int count, Node<T> left, Node<T> right) {
+        return new Node<>(right.value, right.count, new Node<>(value, count, left, right.left), right.right);
+    }
+
+    private static <T> Node<T> rotateRight(T value, int count, Node<T> left, Node<T> right) {
+        return new Node<>(left.value, left.count, left.left, new Node<>(value, count, left.right, right));
+    }
+
+    /**
+     * In-order iterator over a tree, keeping the path of unvisited ancestors on a stack
+     */
+    private static final class TreeIterator<T> implements Iterator<T> {
+        private final ArrayDeque<Node<T>> path = new ArrayDeque<>();
+        private Node<T> current = null;
+        private int remaining = 0;
+
+        TreeIterator(Node<T> root) {
+            descend(root);
+        }
+
+        private void descend(Node<T> node) {
+            for (; node != null; node = node.left) {
+                this.path.push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.remaining > 0 || !this.path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (this.remaining == 0) {
+                if (this.path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                this.current = this.path.pop();
+                this.remaining = this.current.count;
+                descend(this.current.right);
+            }
+            this.remaining--;
+            return this.current.value;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package SortedList;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An approximate, bounded-memory summary of a stream of samples, kept in a {@link SortedList}.
+ * <p>
+ * The sketch stores weighted centroids as the (value, count) nodes of an indexed SortedList.
+ * Samples are inserted as usual, and whenever the number of nodes grows past twice the target
+ * size, a compression pass walks the chain and merges adjacent nodes whose combined count is at
+ * most <tt>epsilon * length / 2</tt>. A merge keeps the value of the heavier node and gives it both
+ * counts, so every node stays a real sample.
+ * <p>
+ * After a pass, any two neighbouring nodes together weigh more than <tt>epsilon * length / 2</tt>,
+ * so at most <tt>4 / epsilon + 1</tt> nodes remain whatever the number of samples. Samples
+ * inserted after a merge can land inside the range the merged node stands for, so the rank error
+ * around a value can add up from the nodes on either side of it; keeping each merge to half the
+ * allowed error leaves room for that, and <tt>get(idx)</tt> returns a sample whose true rank is
+ * within <tt>epsilon * length</tt> of <tt>idx</tt>. Inserts
+ * run in amortized expected O(log(1 / epsilon)).
+ * <p>
+ * Counts are <tt>int</tt>s, as in SortedList, so a sketch summarizes at most
+ * <tt>Integer.MAX_VALUE</tt> samples.
+ *
+ * @param <T> The type of sample summarized
+ */
+public class QuantileSketch<T extends Comparable<T>> {
+    private final SortedList<T> list;
+    private final double epsilon;
+    /**
+     * Number of nodes a compression pass is guaranteed to get down to; a pass runs once the sketch
+     * holds more than twice as many
+     */
+    private final int target;
+    private int nodes;
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param epsilon the rank error allowed, as a fraction of the number of samples
+     * @throws IllegalArgumentException if <tt>epsilon</tt> is not between 0 and 1 (exclusive)
+     */
+    public QuantileSketch(double epsilon) throws IllegalArgumentException {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException();
+        }
+        this.list = new SortedList<>(true);
+        this.epsilon = epsilon;
+        this.target = (int) Math.ceil(4 / epsilon) + 1;
+        this.nodes = 0;
+    }
+
+    /**
+     * @return the rank error allowed, as a fraction of the number of samples
+     */
+    public double epsilon() {
+        return this.epsilon;
+    }
+
+    /**
+     * @return the number of samples added to the sketch
+     */
+    public int length() {
+        return this.list.length;
+    }
+
+    /**
+     * @return the number of centroids the sketch currently holds, which never exceeds
+     * <tt>8 / epsilon + 4</tt>
+     * <p>
+     * A pass gets the sketch down to <tt>target = ceil(4 / epsilon) + 1</tt> nodes, but only runs
+     * once there are more than <tt>2 * target</tt>, so that its O(nodes) cost is amortized over
+     * at least <tt>target</tt> new nodes. The sketch therefore holds at most
+     * <tt>2 * target = 2 * ceil(4 / epsilon) + 2 < 8 / epsilon + 4</tt> nodes between passes.
+     */
+    public int nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the centroids of the sketch, in sorted order
+     */
+    public Iterable<LinkedListNode<T>> centroids() {
+        return this.list.entries();
+    }
+
+    /**
+     * Add a sample to the sketch
+     *
+     * @param sample the sample to add
+     */
+    public void add(T sample) {
+        add(sample, 1);
+    }
+
+    /**
+     * Add a sample to the sketch several times
+     *
+     * @param sample the sample to add
+     * @param weight the number of times to add it
+     * @throws IllegalArgumentException if <tt>weight</tt> < 1
+     */
+    public void add(T sample, int weight) throws IllegalArgumentException {
+        LinkedListNode<T> node = this.list.insertN(sample, weight);
+        if (node.count == weight) {
+            this.nodes++;
+            if (this.nodes > 2 * this.target) {
+                compress();
+            }
+        }
+    }
+
+    /**
+     * Move every sample of another sketch into this one
+     *
+     * @param other the sketch to take the samples of; it is left empty
+     * <p>
+     * Centroids of the two sketches cover overlapping ranges of samples, so their errors add up:
+     * after a merge, ranks are only guaranteed within <tt>2 * epsilon * length</tt>. This function
+     * should run in O(nodes + other.nodes).
+     */
+    public void mergeFrom(QuantileSketch<T> other) {
+        this.list.mergeFrom(other.list);
+        other.nodes = 0;
+        this.nodes = 0;
+        for (LinkedListNode<T> x = this.list.headNode; x != null; x = x.next.orElse(null)) {
+            this.nodes++;
+        }
+        if (this.nodes > 2 * this.target) {
+            compress();
+        }
+    }
+
+    /**
+     * Return an approximation of the sample at the specified index
+     *
+     * @param idx the index to look up
+     * @return a sample whose rank among all the samples added is within
+     * <tt>epsilon * length</tt> of <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * This function should run in expected O(log(1 / epsilon))
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return this.list.get(idx);
+    }
+
+    /**
+     * Return the centroid covering the specified index
+     *
+     * @param idx the index to look up
+     * @return the node whose value approximates the sample at <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     */
+    public LinkedListNode<T> getRef(int idx) throws IndexOutOfBoundsException {
+        return this.list.getRef(idx);
+    }
+
+    /**
+     * Return an approximation of a quantile of the samples
+     *
+     * @param q the quantile, between 0 and 1
+     * @return a sample whose rank is within <tt>epsilon * length</tt> of <tt>q * length</tt>
+     * @throws NoSuchElementException if the sketch is empty
+     */
+    public T quantile(double q) throws NoSuchElementException {
+        if (this.list.length == 0) {
+            throw new NoSuchElementException();
+        }
+        int idx = (int) Math.ceil(q * this.list.length) - 1;
+        return this.list.get(Math.min(Math.max(idx, 0), this.list.length - 1));
+    }
+
+    /**
+     * Estimate the rank of a value
+     *
+     * @param elem a value
+     * @return the number of samples less than <tt>elem</tt>, within <tt>epsilon * length</tt>
+     */
+    public int rank(T elem) {
+        return this.list.rank(elem);
+    }
+
+    /**
+     * Merge adjacent centroids whose combined count is at most <tt>epsilon * length / 2</tt>,
+     * keeping the value of the heavier one
+     */
+    private void compress() {
+        long limit = Math.max(1, (long) (this.epsilon * this.list.length / 2));
+        LinkedListNode<T> x = this.list.headNode;
+        while (x != null && x.next.isPresent()) {
+            LinkedListNode<T> y = x.next.get();
+            if ((long) x.count + y.count > limit) {
+                x = y;
+            } else if (x.count >= y.count) {
+                int count = y.count;
+                this.list.removeAll(y);
+                this.list.insertN(x.value, count, x);
+                this.nodes--;
+            } else {
+                int count = x.count;
+                this.list.removeAll(x);
+                this.list.insertN(y.value, count, y);
+                this.nodes--;
+                x = y;
+            }
+        }
+    }
+}
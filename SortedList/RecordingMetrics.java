@@ -0,0 +1,206 @@
+package SortedList;
+
+import SortedList.SortedListMetrics.Operation;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link SortedListMetrics} that count comparisons and hops and keep latency and hop histograms
+ * for every operation.
+ * <p>
+ * The hinted variant of each operation is recorded separately from the unhinted one. Whenever a
+ * hinted call takes more steps than any hinted call before it, the stack trace of that call is
+ * captured, so the caller passing the worst hint can be found; this only happens when a new worst
+ * is seen, which is rare once the list has warmed up.
+ * <p>
+ * An instance belongs to a single list and, like the list, must only be driven by one thread at
+ * a time. <tt>snapshot</tt> and the JMX attributes may be read from any thread.
+ */
+public class RecordingMetrics implements SortedListMetrics, SortedListMetricsMXBean {
+    private static final int KEYS = Operation.values().length * 2;
+
+    private long[] counts;
+    private long[] comparisons;
+    private long[] hops;
+    private long[][] latencies;
+    private long[][] hopHistograms;
+    private long worstHintHops;
+    private StackTraceElement[] worstHintCaller;
+
+    /**
+     * Nesting depth of the operation in progress; only the outermost one is recorded
+     */
+    private int depth;
+    private long currentComparisons;
+    private long currentHops;
+
+    /**
+     * Creates metrics with nothing recorded
+     */
+    public RecordingMetrics() {
+        reset();
+    }
+
+    @Override
+    public long begin() {
+        if (this.depth++ == 0) {
+            this.currentComparisons = 0;
+            this.currentHops = 0;
+            return System.nanoTime();
+        }
+        return 0;
+    }
+
+    @Override
+    public void compared() {
+        this.currentComparisons++;
+    }
+
+    @Override
+    public void hopped() {
+        this.currentHops++;
+    }
+
+    @Override
+    public void end(Operation op, boolean hinted, long start) {
+        if (--this.depth > 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        int key = MetricsSnapshot.key(op, hinted);
+        synchronized (this) {
+            this.counts[key]++;
+            this.comparisons[key] += this.currentComparisons;
+            this.hops[key] += this.currentHops;
+            this.latencies[key][MetricsSnapshot.bucket(elapsed)]++;
+            this.hopHistograms[key][MetricsSnapshot.bucket(this.currentHops)]++;
+            if (hinted && this.currentHops > this.worstHintHops) {
+                this.worstHintHops = this.currentHops;
+                this.worstHintCaller = new Throwable().getStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return a copy of everything recorded so far
+     */
+    public synchronized MetricsSnapshot snapshot() {
+        long[][] latencies = new long[KEYS][];
+        long[][] hopHistograms = new long[KEYS][];
+        for (int k = 0; k < KEYS; k++) {
+            latencies[k] = this.latencies[k].clone();
+            hopHistograms[k] = this.hopHistograms[k].clone();
+        }
+        return new MetricsSnapshot(this.counts.clone(), this.comparisons.clone(), this.hops.clone(),
+                latencies, hopHistograms, this.worstHintHops, getWorstHintCaller());
+    }
+
+    @Override
+    public synchronized void reset() {
+        this.counts = new long[KEYS];
+        this.comparisons = new long[KEYS];
+        this.hops = new long[KEYS];
+        this.latencies = new long[KEYS][MetricsSnapshot.BUCKETS];
+        this.hopHistograms = new long[KEYS][MetricsSnapshot.BUCKETS];
+        this.worstHintHops = 0;
+        this.worstHintCaller = null;
+    }
+
+    /**
+     * Register these metrics with the platform MBean server
+     *
+     * @param name a name identifying the list, unique among registered lists
+     * @return the name the MBean was registered under
+     * @throws JMException if the name is malformed or already taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SortedList:type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public synchronized long getComparisons() {
+        long total = 0;
+        for (long n : this.comparisons) {
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized long getHops() {
+        long total = 0;
+        for (long n : this.hops) {
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        MetricsSnapshot snapshot = snapshot();
+        Map<String, Long> ret = new LinkedHashMap<>();
+        for (Operation op : Operation.values()) {
+            ret.put(op.name(), snapshot.count(op, false));
+            ret.put(op.name() + "_HINTED", snapshot.count(op, true));
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Double> getMeanHops() {
+        MetricsSnapshot snapshot = snapshot();
+        Map<String, Double> ret = new LinkedHashMap<>();
+        for (Operation op : Operation.values()) {
+            ret.put(op.name(), snapshot.meanHops(op, false));
+            ret.put(op.name() + "_HINTED", snapshot.meanHops(op, true));
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return latencyPercentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return latencyPercentiles(0.99);
+    }
+
+    private Map<String, Long> latencyPercentiles(double q) {
+        MetricsSnapshot snapshot = snapshot();
+        Map<String, Long> ret = new LinkedHashMap<>();
+        for (Operation op : Operation.values()) {
+            ret.put(op.name(), snapshot.latencyPercentile(op, false, q));
+            ret.put(op.name() + "_HINTED", snapshot.latencyPercentile(op, true, q));
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized long getWorstHintHops() {
+        return this.worstHintHops;
+    }
+
+    @Override
+    public synchronized String getWorstHintCaller() {
+        if (this.worstHintCaller == null) {
+            return "";
+        }
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        for (StackTraceElement frame : this.worstHintCaller) {
+            writer.println("\tat " + frame);
+        }
+        writer.flush();
+        return out.toString();
+    }
+}
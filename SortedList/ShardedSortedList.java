@@ -0,0 +1,271 @@
+package SortedList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * A sorted list partitioned by key range into independent {@link SortedList} shards.
+ * <p>
+ * The list is given split points <tt>s[0] < s[1] < ... < s[k-2]</tt>; shard 0 holds the values
+ * below <tt>s[0]</tt>, shard i holds the values in <tt>[s[i-1], s[i])</tt> and the last shard
+ * holds the values at or above <tt>s[k-2]</tt>. Each shard is guarded by its own lock, so threads
+ * inserting into different shards never wait on each other, and <tt>insertAll</tt> loads the
+ * shards of a batch in parallel.
+ * <p>
+ * Together the shards present a single sorted view: lookups are routed to the owning shard,
+ * <tt>get</tt> skips whole shards using their lengths, and the iterator walks the shards one
+ * after the other.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class ShardedSortedList<T extends Comparable<T>> implements Iterable<T> {
+    private final T[] splits;
+    private final List<SortedList<T>> shards;
+
+    /**
+     * Creates an empty ShardedSortedList
+     *
+     * @param splits the split points between shards, in strictly increasing order
+     * @throws IllegalArgumentException if <tt>splits</tt> is not strictly increasing
+     */
+    public ShardedSortedList(T[] splits) throws IllegalArgumentException {
+        this(splits, false);
+    }
+
+    /**
+     * Creates an empty ShardedSortedList
+     *
+     * @param splits  the split points between shards, in strictly increasing order
+     * @param indexed whether each shard maintains a skip-list index
+     * @throws IllegalArgumentException if <tt>splits</tt> is not strictly increasing
+     */
+    public ShardedSortedList(T[] splits, boolean indexed) throws IllegalArgumentException {
+        for (int i = 1; i < splits.length; i++) {
+            if (splits[i - 1].compareTo(splits[i]) >= 0) {
+                throw new IllegalArgumentException("Split points must be strictly increasing");
+            }
+        }
+        this.splits = splits.clone();
+        this.shards = new ArrayList<>(splits.length + 1);
+        for (int i = 0; i <= splits.length; i++) {
+            this.shards.add(new SortedList<>(indexed));
+        }
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int shards() {
+        return this.shards.size();
+    }
+
+    /**
+     * @param i a shard number
+     * @return shard <tt>i</tt>; callers must hold its monitor while using it concurrently with
+     * this list
+     */
+    public SortedList<T> shard(int i) {
+        return this.shards.get(i);
+    }
+
+    /**
+     * @param elem a value
+     * @return the number of the shard that owns <tt>elem</tt>
+     * <p>
+     * This function should run in O(log shards)
+     */
+    public int shardOf(T elem) {
+        int lo = 0;
+        int hi = this.splits.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.splits[mid].compareTo(elem) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return the number of elements across all shards
+     */
+    public int length() {
+        int length = 0;
+        for (SortedList<T> shard : this.shards) {
+            synchronized (shard) {
+                length += shard.length;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Insert a new value into the shard that owns it
+     *
+     * @param elem the value to insert
+     * @return a reference to the node holding the inserted value
+     */
+    public LinkedListNode<T> insert(T elem) {
+        SortedList<T> shard = this.shards.get(shardOf(elem));
+        synchronized (shard) {
+            return shard.insert(elem);
+        }
+    }
+
+    /**
+     * Insert every value of a collection, loading the shards in parallel
+     *
+     * @param elems the values to insert
+     * <p>
+     * The batch is partitioned by shard, and each shard then receives its part through
+     * {@link SortedList#insertAll(Collection)} on its own thread.
+     */
+    public void insertAll(Collection<? extends T> elems) {
+        List<List<T>> parts = new ArrayList<>(this.shards.size());
+        for (int i = 0; i < this.shards.size(); i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (T elem : elems) {
+            parts.get(shardOf(elem)).add(elem);
+        }
+        IntStream.range(0, this.shards.size()).parallel()
+                .filter(i -> !parts.get(i).isEmpty())
+                .forEach(i -> {
+                    SortedList<T> shard = this.shards.get(i);
+                    synchronized (shard) {
+                        shard.insertAll(parts.get(i));
+                    }
+                });
+    }
+
+    /**
+     * Find a reference to the specified element
+     *
+     * @param elem the element to find
+     * @return <tt>Optional.of(node)</tt> where <tt>node</tt> contains <tt>elem</tt>, or
+     * <tt>Optional.empty()</tt> if <tt>elem</tt> is not in the list
+     */
+    public Optional<LinkedListNode<T>> findRef(T elem) {
+        SortedList<T> shard = this.shards.get(shardOf(elem));
+        synchronized (shard) {
+            return shard.findRef(elem);
+        }
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx the index to look up
+     * @return the node holding the element at position <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     * <p>
+     * Shards before the one holding <tt>idx</tt> are skipped by their length.
+     */
+    public LinkedListNode<T> getRef(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (SortedList<T> shard : this.shards) {
+            synchronized (shard) {
+                if (idx < shard.length) {
+                    return shard.getRef(idx);
+                }
+                idx -= shard.length;
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Return the value at the specified index
+     *
+     * @param idx the index to look up
+     * @return the value currently at index <tt>idx</tt>
+     * @throws IndexOutOfBoundsException if <tt>idx</tt> < 0 or <tt>idx</tt> >= length
+     */
+    public T get(int idx) throws IndexOutOfBoundsException {
+        return getRef(idx).value;
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     */
+    public T remove(LinkedListNode<T> ref) {
+        SortedList<T> shard = this.shards.get(shardOf(ref.value));
+        synchronized (shard) {
+            return shard.remove(ref);
+        }
+    }
+
+    /**
+     * Remove n instances of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @param n the number of instances of the value to remove
+     * @return the removed value
+     * @throws IllegalArgumentException if <tt>n</tt> > <tt>ref.count</tt>
+     */
+    public T removeN(LinkedListNode<T> ref, int n) throws IllegalArgumentException {
+        SortedList<T> shard = this.shards.get(shardOf(ref.value));
+        synchronized (shard) {
+            return shard.removeN(ref, n);
+        }
+    }
+
+    /**
+     * Remove all instances of the value held by <tt>ref</tt>
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     */
+    public T removeAll(LinkedListNode<T> ref) {
+        SortedList<T> shard = this.shards.get(shardOf(ref.value));
+        synchronized (shard) {
+            return shard.removeAll(ref);
+        }
+    }
+
+    /**
+     * Return an iterator over the elements of all shards
+     *
+     * @return an iterator over the elements, in sorted order
+     * <p>
+     * The shards hold disjoint key ranges in order, so their iterators are simply chained one
+     * after the other. The iterator does not lock the shards, so it must not be used while other
+     * threads are writing to the list. <tt>next</tt> and <tt>hasNext</tt> run in amortized O(1).
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<SortedList<T>> remaining = this.shards.iterator();
+        return new Iterator<T>() {
+            private Iterator<T> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    current = remaining.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+}
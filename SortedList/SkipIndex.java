@@ -0,0 +1,369 @@
+package SortedList;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A probabilistic skip-list index over the node chain of a {@link SortedList}.
+ * <p>
+ * The base chain (<tt>node.next</tt>) is level 0 and is owned by the list. Some nodes also carry a
+ * tower of forward links (<tt>node.skip</tt>) for index levels 1 and up, which act as express
+ * lanes over the chain. Each node is promoted to the next level with probability 1/4, so most
+ * nodes carry no tower at all and iteration over the chain is unaffected.
+ * <p>
+ * Every forward link also records its span (<tt>node.span</tt>): the number of elements, counting
+ * duplicates, between the node it leaves and the node it reaches. This makes the index an order
+ * statistic structure as well, so positions can be turned into nodes and back.
+ * <p>
+ * Searches through the index run in expected O(log length).
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class SkipIndex<T extends Comparable<T>> {
+    /**
+     * Highest index level a tower may reach
+     */
+    public static final int MAX_LEVEL = 16;
+
+    /**
+     * Forward links of the head sentinel, <tt>head[l - 1]</tt> being the link at level <tt>l</tt>
+     */
+    private final LinkedListNode<T>[] head;
+    /**
+     * Spans of the head sentinel's forward links
+     */
+    private final int[] headSpan;
+    /**
+     * Number of index levels currently in use
+     */
+    private int level;
+    private final Random random;
+    private SortedListMetrics metrics;
+    /**
+     * Scratch arrays receiving the search path of the current update, reused so that searches
+     * and updates through the index allocate nothing
+     */
+    private final LinkedListNode<T>[] path;
+    private final int[] pathRank;
+
+    /**
+     * Creates an empty index
+     */
+    public SkipIndex() {
+        this.head = LinkedListNode.newArray(MAX_LEVEL);
+        this.headSpan = new int[MAX_LEVEL];
+        this.level = 0;
+        this.random = new Random();
+        this.metrics = SortedListMetrics.DISABLED;
+        this.path = newPath();
+        this.pathRank = new int[MAX_LEVEL + 1];
+    }
+
+    /**
+     * Choose where searches through the index report their comparisons and hops
+     */
+    public void setMetrics(SortedListMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Find the node holding elem, or the node that would precede it
+     *
+     * @param elem   the element to find
+     * @param first  the first node of the base chain
+     * @param update if not null, receives at <tt>update[l]</tt> the last node at level <tt>l</tt>
+     *               whose value is strictly less than <tt>elem</tt> (null standing for the head)
+     * @return the node containing the greatest element less than or equal to <tt>elem</tt>, or
+     * null if <tt>elem</tt> is smaller than every element in the list
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public LinkedListNode<T> findBefore(T elem, LinkedListNode<T> first, LinkedListNode<T>[] update) {
+        LinkedListNode<T> x = descend(elem, update, null);
+
+        LinkedListNode<T> best = x;
+        LinkedListNode<T> current = x == null ? first : x.next.orElse(null);
+        while (current != null && compare(current.value, elem) <= 0) {
+            best = current;
+            current = current.next.orElse(null);
+            this.metrics.hopped();
+        }
+        return best;
+    }
+
+    /**
+     * Count the elements strictly less than elem
+     *
+     * @param elem  the element to rank
+     * @param first the first node of the base chain
+     * @return the number of elements in the list that are less than <tt>elem</tt>, which is also
+     * the index of the first instance of <tt>elem</tt> if the list contains it
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public int rank(T elem, LinkedListNode<T> first) {
+        int[] rank = this.pathRank;
+        LinkedListNode<T> x = descend(elem, null, rank);
+        return walkRank(x, x == null ? 0 : rank[1], elem, first);
+    }
+
+    /**
+     * Return the node holding the element at the specified index
+     *
+     * @param idx   the index to look up, which must be in range
+     * @param first the first node of the base chain
+     * @return the node holding the element at position <tt>idx</tt>
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public LinkedListNode<T> nodeAt(int idx, LinkedListNode<T> first) {
+        LinkedListNode<T> x = null;
+        int pos = 0;
+        for (int l = this.level; l >= 1; l--) {
+            LinkedListNode<T> f = forward(x, l);
+            while (f != null && pos + span(x, l) <= idx) {
+                pos += span(x, l);
+                x = f;
+                this.metrics.hopped();
+                f = forward(x, l);
+            }
+        }
+
+        LinkedListNode<T> current = x == null ? first : x;
+        while (pos + current.count <= idx) {
+            pos += current.count;
+            current = current.next.get();
+            this.metrics.hopped();
+        }
+        return current;
+    }
+
+    /**
+     * Add a node that has just been linked into the base chain to the index
+     *
+     * @param node  the new node
+     * @param first the first node of the base chain
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public void insert(LinkedListNode<T> node, LinkedListNode<T> first) {
+        LinkedListNode<T>[] update = this.path;
+        int[] rank = this.pathRank;
+        LinkedListNode<T> x = descend(node.value, update, rank);
+        int pos = walkRank(x, x == null ? 0 : rank[1], node.value, first);
+
+        int height = randomHeight();
+        for (int l = this.level + 1; l <= height; l++) {
+            update[l] = null;
+            rank[l] = 0;
+        }
+        if (height > 0) {
+            node.skip = LinkedListNode.newArray(height);
+            node.span = new int[height];
+        }
+        for (int l = 1; l <= height; l++) {
+            LinkedListNode<T> f = forward(update[l], l);
+            if (f != null) {
+                node.span[l - 1] = rank[l] + span(update[l], l) + node.count - pos;
+            }
+            node.skip[l - 1] = f;
+            setForward(update[l], l, node, pos - rank[l]);
+        }
+        for (int l = height + 1; l <= this.level; l++) {
+            if (forward(update[l], l) != null) {
+                setSpan(update[l], l, span(update[l], l) + node.count);
+            }
+        }
+        this.level = Math.max(this.level, height);
+    }
+
+    /**
+     * Remove a node that is being unlinked from the base chain from the index
+     *
+     * @param node the node being removed, still holding the count it is removed with
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public void remove(LinkedListNode<T> node) {
+        LinkedListNode<T>[] update = this.path;
+        descend(node.value, update, null);
+        int height = node.skip == null ? 0 : node.skip.length;
+        for (int l = 1; l <= this.level; l++) {
+            LinkedListNode<T> f = forward(update[l], l);
+            if (l <= height && f == node) {
+                setForward(update[l], l, node.skip[l - 1],
+                        span(update[l], l) + node.span[l - 1] - node.count);
+            } else if (f != null) {
+                setSpan(update[l], l, span(update[l], l) - node.count);
+            }
+        }
+        node.skip = null;
+        node.span = null;
+        while (this.level > 0 && this.head[this.level - 1] == null) {
+            this.level--;
+        }
+    }
+
+    /**
+     * Record that the count of a node in the list has changed
+     *
+     * @param node  the node whose count changed
+     * @param delta the change in its count
+     * <p>
+     * This function should run in expected O(log length)
+     */
+    public void adjust(LinkedListNode<T> node, int delta) {
+        LinkedListNode<T>[] update = this.path;
+        descend(node.value, update, null);
+        for (int l = 1; l <= this.level; l++) {
+            LinkedListNode<T> f = forward(update[l], l);
+            if (f != null && f != node) {
+                setSpan(update[l], l, span(update[l], l) + delta);
+            }
+        }
+        if (node.skip != null) {
+            for (int l = 1; l <= node.skip.length; l++) {
+                if (node.skip[l - 1] != null) {
+                    node.span[l - 1] += delta;
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard the current index and rebuild it over the chain starting at <tt>first</tt>
+     *
+     * @param first the first node of the base chain, or null if the list is empty
+     * <p>
+     * This function should run in O(length)
+     */
+    public void rebuild(LinkedListNode<T> first) {
+        LinkedListNode<T>[] last = newPath();
+        int[] lastPos = new int[MAX_LEVEL + 1];
+        Arrays.fill(this.head, null);
+        Arrays.fill(this.headSpan, 0);
+        this.level = 0;
+
+        int pos = 0;
+        for (LinkedListNode<T> x = first; x != null; x = x.next.orElse(null)) {
+            int height = randomHeight();
+            x.skip = null;
+            x.span = null;
+            if (height > 0) {
+                x.skip = LinkedListNode.newArray(height);
+                x.span = new int[height];
+                for (int l = 1; l <= height; l++) {
+                    setForward(last[l], l, x, pos - lastPos[l]);
+                    last[l] = x;
+                    lastPos[l] = pos;
+                }
+                this.level = Math.max(this.level, height);
+            }
+            pos += x.count;
+        }
+    }
+
+    /**
+     * Allocate an array large enough to receive a search path
+     */
+    public LinkedListNode<T>[] newPath() {
+        return LinkedListNode.newArray(MAX_LEVEL + 1);
+    }
+
+    /**
+     * Current number of index levels
+     */
+    public int levels() {
+        return this.level;
+    }
+
+    /**
+     * Walk the index levels towards elem
+     *
+     * @return the last node on level 1 whose value is strictly less than <tt>elem</tt>, or null
+     * if there is none; <tt>update</tt> and <tt>rank</tt>, when given, receive the last such node
+     * on every level and its position in the list
+     */
+    private LinkedListNode<T> descend(T elem, LinkedListNode<T>[] update, int[] rank) {
+        LinkedListNode<T> x = null;
+        int pos = 0;
+        for (int l = this.level; l >= 1; l--) {
+            LinkedListNode<T> f = forward(x, l);
+            while (f != null && compare(f.value, elem) < 0) {
+                pos += span(x, l);
+                x = f;
+                this.metrics.hopped();
+                f = forward(x, l);
+            }
+            if (update != null) {
+                update[l] = x;
+            }
+            if (rank != null) {
+                rank[l] = pos;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Finish a rank search on the base chain, starting from node <tt>x</tt> at position
+     * <tt>pos</tt> (or from the start of the list if <tt>x</tt> is null)
+     */
+    private int walkRank(LinkedListNode<T> x, int pos, T elem, LinkedListNode<T> first) {
+        LinkedListNode<T> current = first;
+        if (x != null) {
+            pos += x.count;
+            current = x.next.orElse(null);
+        }
+        while (current != null && compare(current.value, elem) < 0) {
+            pos += current.count;
+            current = current.next.orElse(null);
+            this.metrics.hopped();
+        }
+        return pos;
+    }
+
+    private int compare(T a, T b) {
+        this.metrics.compared();
+        return a.compareTo(b);
+    }
+
+    private LinkedListNode<T> forward(LinkedListNode<T> x, int l) {
+        if (x == null) {
+            return this.head[l - 1];
+        }
+        return x.skip[l - 1];
+    }
+
+    private int span(LinkedListNode<T> x, int l) {
+        if (x == null) {
+            return this.headSpan[l - 1];
+        }
+        return x.span[l - 1];
+    }
+
+    private void setForward(LinkedListNode<T> x, int l, LinkedListNode<T> f, int span) {
+        if (x == null) {
+            this.head[l - 1] = f;
+        } else {
+            x.skip[l - 1] = f;
+        }
+        setSpan(x, l, span);
+    }
+
+    private void setSpan(LinkedListNode<T> x, int l, int span) {
+        if (x == null) {
+            this.headSpan[l - 1] = span;
+        } else {
+            x.span[l - 1] = span;
+        }
+    }
+
+    private int randomHeight() {
+        int height = 0;
+        while (height < MAX_LEVEL && (this.random.nextInt() & 3) == 0) {
+            height++;
+        }
+        return height;
+    }
+}
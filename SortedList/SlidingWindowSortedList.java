@@ -0,0 +1,166 @@
+package SortedList;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted rolling window over a stream of samples.
+ * <p>
+ * The window keeps its samples in an indexed {@link SortedList} and, next to it, a ring holding
+ * the node returned by <tt>insert</tt> for each sample in arrival order. When a sample falls out
+ * of the window, the node at the tail of the ring is handed to the O(1) <tt>remove</tt>, so the
+ * caller never has to track insertion order. The window is bounded by a number of samples, and
+ * optionally also by sample age.
+ * <p>
+ * Since the list is indexed, <tt>percentile</tt> and <tt>median</tt> run in expected
+ * O(log capacity), and the window never holds more than <tt>capacity</tt> samples.
+ *
+ * @param <T> The type of sample stored in the window
+ */
+public class SlidingWindowSortedList<T extends Comparable<T>> implements Iterable<T> {
+    private final SortedList<T> list;
+    private final LinkedListNode<T>[] nodes;
+    private final long[] times;
+    /**
+     * Maximum age of a sample in nanoseconds, or <tt>Long.MAX_VALUE</tt> if samples never expire
+     */
+    private final long maxAgeNanos;
+    /**
+     * Ring position of the oldest sample
+     */
+    private int oldest;
+    private int size;
+
+    /**
+     * Creates an empty window holding the last <tt>capacity</tt> samples
+     *
+     * @param capacity the number of samples in a full window
+     * @throws IllegalArgumentException if <tt>capacity</tt> < 1
+     */
+    public SlidingWindowSortedList(int capacity) throws IllegalArgumentException {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates an empty window holding at most <tt>capacity</tt> samples, none of them older than
+     * <tt>maxAgeNanos</tt>
+     *
+     * @param capacity    the most samples the window holds
+     * @param maxAgeNanos how long a sample stays in the window, in nanoseconds
+     * @throws IllegalArgumentException if <tt>capacity</tt> < 1 or <tt>maxAgeNanos</tt> < 0
+     */
+    public SlidingWindowSortedList(int capacity, long maxAgeNanos) throws IllegalArgumentException {
+        if (capacity < 1 || maxAgeNanos < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.list = new SortedList<>(true);
+        this.nodes = LinkedListNode.newArray(capacity);
+        this.times = new long[capacity];
+        this.maxAgeNanos = maxAgeNanos;
+        this.oldest = 0;
+        this.size = 0;
+    }
+
+    /**
+     * @return the number of samples currently in the window
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Add a sample taken now
+     *
+     * @param sample the sample to add
+     * @return the node holding the sample
+     */
+    public LinkedListNode<T> add(T sample) {
+        return add(sample, System.nanoTime());
+    }
+
+    /**
+     * Add a sample taken at the given time
+     *
+     * @param sample the sample to add
+     * @param nanos  when the sample was taken, on the <tt>System.nanoTime()</tt> scale; samples
+     *               must be added in time order
+     * @return the node holding the sample
+     * <p>
+     * Samples older than the maximum age are evicted first, then the oldest sample if the window
+     * is full. This function should run in expected O(log capacity).
+     */
+    public LinkedListNode<T> add(T sample, long nanos) {
+        expire(nanos);
+        if (this.size == this.nodes.length) {
+            evictOldest();
+        }
+        LinkedListNode<T> node = this.list.insert(sample);
+        int slot = (this.oldest + this.size) % this.nodes.length;
+        this.nodes[slot] = node;
+        this.times[slot] = nanos;
+        this.size++;
+        return node;
+    }
+
+    /**
+     * Evict every sample older than the maximum age
+     *
+     * @param nanos the current time, on the <tt>System.nanoTime()</tt> scale
+     */
+    public void expire(long nanos) {
+        while (this.size > 0 && nanos - this.times[this.oldest] > this.maxAgeNanos) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        this.list.remove(this.nodes[this.oldest]);
+        this.nodes[this.oldest] = null;
+        this.oldest = (this.oldest + 1) % this.nodes.length;
+        this.size--;
+    }
+
+    /**
+     * Return the sample at a percentile of the window
+     *
+     * @param p the percentile, between 0 and 1
+     * @return the smallest sample that at least <tt>p</tt> of the window is less than or equal to
+     * @throws NoSuchElementException if the window is empty
+     * <p>
+     * This function should run in expected O(log capacity)
+     */
+    public T percentile(double p) throws NoSuchElementException {
+        if (this.size == 0) {
+            throw new NoSuchElementException();
+        }
+        int rank = (int) Math.ceil(p * this.size) - 1;
+        return this.list.get(Math.min(Math.max(rank, 0), this.size - 1));
+    }
+
+    /**
+     * @return the median sample of the window (the lower one if the size is even)
+     * @throws NoSuchElementException if the window is empty
+     */
+    public T median() throws NoSuchElementException {
+        return percentile(0.5);
+    }
+
+    /**
+     * Count the samples between lo and hi
+     *
+     * @param lo the lower bound (inclusive)
+     * @param hi the upper bound (inclusive)
+     * @return the number of samples <tt>s</tt> in the window with <tt>lo <= s <= hi</tt>
+     */
+    public int countBetween(T lo, T hi) {
+        return this.list.countBetween(lo, hi);
+    }
+
+    /**
+     * @return an iterator over the samples in the window, in sorted order
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return this.list.iterator();
+    }
+}
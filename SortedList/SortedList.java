@@ -1,8 +1,25 @@
-import SortedList.LinkedListNode;
+package SortedList;
 
-import javax.swing.text.html.Option;
+import SortedList.SortedListMetrics.Operation;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A linked list that stores its elements in sorted order.
@@ -16,6 +33,25 @@ import java.util.Optional;
  * reference to a node that is close to the search term in the sorted list.  If this is actually the
  * case, the runtime of these methods, which is normally linear <i>in the size of the list</i> will
  * drop to linear in the number of records between the hint and the search term.
+ * <p>
+ * A SortedList may optionally be <i>indexed</i>, in which case a probabilistic skip-list index
+ * ({@link SkipIndex}) is maintained over the node chain. The unhinted <tt>findRefBefore</tt>,
+ * <tt>findRef</tt> and <tt>insert</tt> then run in expected O(log length) instead of O(length),
+ * while the hinted variants, node references and iteration behave exactly as before. The index
+ * also counts the elements each of its links jumps over, so that <tt>getRef</tt>, <tt>get</tt>,
+ * <tt>rank</tt> and <tt>indexOf</tt> run in expected O(log length) as well.
+ * <p>
+ * A list with few distinct values may also keep a <i>hash lookup</i> from each value to its node
+ * (see <tt>setHashLookup</tt>). While it is on, <tt>insert</tt> of a value that is already in the
+ * list and the unhinted <tt>findRef</tt> run in expected O(1), which makes counting workloads
+ * (many inserts over a small set of keys) about as fast as counting in a <tt>HashMap</tt>. The
+ * lookup relies on <tt>equals</tt> and <tt>hashCode</tt> agreeing with <tt>compareTo</tt>, which
+ * the list cannot check, so it is never turned on behind the caller's back: either turn it on
+ * directly, or let the list turn it on when it sees a counting workload with
+ * <tt>setAdaptiveHashLookup</tt>.
+ * <p>
+ * Comparison counts, hop counts and latencies of each operation can be collected by installing a
+ * {@link RecordingMetrics} with <tt>setMetrics</tt>; by default nothing is recorded.
  *
  * @param <T> The type of value stored in the list
  */
@@ -32,6 +68,42 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * Number of elements in the list (which may be different from number of nodes)
      */
     public int length;
+    /**
+     * Skip-list index over the node chain, or null if the list is not indexed
+     */
+    private SkipIndex<T> index;
+    /**
+     * Where operations report their cost, {@link SortedListMetrics#DISABLED} unless instrumented
+     */
+    private SortedListMetrics metrics;
+    /**
+     * Map from each value in the list to its node, or null if the hash lookup is off
+     */
+    private HashMap<T, LinkedListNode<T>> lookup;
+
+    /**
+     * Whether the list turns the hash lookup on by itself when inserts mostly hit existing values
+     */
+    private boolean adaptive;
+    /**
+     * Unhinted inserts seen in the current adaptive window, and how many of them created a node
+     */
+    private int windowInserts;
+    private int windowMisses;
+    /**
+     * Number of times every node of the list has been handed to another list by
+     * <tt>mergeFrom</tt>; a cursor's node is only trusted if this has not changed since it moved
+     */
+    private int handovers;
+
+    /**
+     * Most distinct values the hash lookup is kept for
+     */
+    public static final int HASH_LOOKUP_LIMIT = 1024;
+    /**
+     * Number of unhinted inserts over which the adaptive hash lookup measures the hit rate
+     */
+    public static final int HASH_LOOKUP_WINDOW = 4096;
 
     /**
      * Creates an empty SortedList
@@ -40,6 +112,282 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
         this.headNode = null;
         this.lastNode = null;
         this.length = 0;
+        this.index = null;
+        this.metrics = SortedListMetrics.DISABLED;
+        this.lookup = null;
+        this.adaptive = false;
+    }
+
+    /**
+     * Creates an empty SortedList
+     *
+     * @param indexed whether to maintain a skip-list index over the list
+     */
+    public SortedList(boolean indexed) {
+        this();
+        setIndexed(indexed);
+    }
+
+    /**
+     * Build a SortedList from values that are already in sorted order
+     *
+     * @param elems the values, in non-decreasing order
+     * @return a list holding every value produced by <tt>elems</tt>
+     * @throws IllegalArgumentException if <tt>elems</tt> produces a value that is smaller than the
+     *                                  one before it
+     * <p>
+     * Each value is appended to the end of the chain (or added to the count of the last node if
+     * it repeats), so this function should run in O(length).
+     */
+    public static <T extends Comparable<T>> SortedList<T> fromSorted(Iterator<? extends T> elems)
+            throws IllegalArgumentException {
+        return fromSorted(elems, false);
+    }
+
+    /**
+     * Build a SortedList from values that are already in sorted order
+     *
+     * @param elems   the values, in non-decreasing order
+     * @param indexed whether to maintain a skip-list index over the list
+     * @return a list holding every value produced by <tt>elems</tt>
+     * @throws IllegalArgumentException if <tt>elems</tt> produces a value that is smaller than the
+     *                                  one before it
+     * <p>
+     * This function should run in O(length)
+     */
+    public static <T extends Comparable<T>> SortedList<T> fromSorted(Iterator<? extends T> elems,
+                                                                     boolean indexed)
+            throws IllegalArgumentException {
+        return fromSorted(elems, indexed, SortedListMetrics.DISABLED);
+    }
+
+    /**
+     * Build a SortedList from values that are already in sorted order, reporting to metrics
+     *
+     * @param elems   the values, in non-decreasing order
+     * @param indexed whether to maintain a skip-list index over the list
+     * @param metrics the metrics the new list reports to, starting with the build itself
+     * @return a list holding every value produced by <tt>elems</tt>
+     * @throws IllegalArgumentException if <tt>elems</tt> produces a value that is smaller than the
+     *                                  one before it
+     * <p>
+     * This function should run in O(length)
+     */
+    public static <T extends Comparable<T>> SortedList<T> fromSorted(Iterator<? extends T> elems,
+                                                                     boolean indexed,
+                                                                     SortedListMetrics metrics)
+            throws IllegalArgumentException {
+        SortedList<T> list = new SortedList<>();
+        list.setMetrics(metrics);
+        long start = metrics.begin();
+        try {
+            while (elems.hasNext()) {
+                list.append(elems.next(), 1);
+            }
+            list.setIndexed(indexed);
+        } finally {
+            metrics.end(Operation.FROM_SORTED, false, start);
+        }
+        return list;
+    }
+
+    /**
+     * Write a compact binary snapshot of the list
+     *
+     * @param channel the channel to write to, starting at its current position
+     * @param codec   the encoding of the values
+     * @throws IOException if writing fails
+     * <p>
+     * See {@link SortedListSnapshot} for the format. This function should run in O(length).
+     */
+    public void writeTo(FileChannel channel, KeyCodec<T> codec) throws IOException {
+        SortedListSnapshot.write(this, channel, codec);
+    }
+
+    /**
+     * Load a list from a snapshot file written by <tt>writeTo</tt>
+     *
+     * @param path  the snapshot file
+     * @param codec the encoding of the values, which must be the one the file was written with
+     * @return the list stored in the file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     * <p>
+     * The file is memory-mapped and the chain linked in a single pass, so this function should
+     * run in O(length).
+     */
+    public static <T extends Comparable<T>> SortedList<T> readFrom(Path path, KeyCodec<T> codec)
+            throws IOException {
+        return SortedListSnapshot.read(path, codec, false);
+    }
+
+    /**
+     * Add n instances of elem to the end of the list, bypassing the index
+     *
+     * @throws IllegalArgumentException if <tt>elem</tt> is smaller than the last value
+     */
+    void append(T elem, int n) throws IllegalArgumentException {
+        this.length += n;
+        if (this.lastNode != null) {
+            int cmp = compare(this.lastNode.value, elem);
+            if (cmp == 0) {
+                this.lastNode.count += n;
+                return;
+            } else if (cmp > 0) {
+                this.length -= n;
+                throw new IllegalArgumentException(
+                        "Out of order: " + elem + " after " + this.lastNode.value);
+            }
+        }
+
+        LinkedListNode<T> node = new LinkedListNode<>(elem, n);
+        hashed(node);
+        if (this.lastNode == null) {
+            this.headNode = node;
+        } else {
+            node.prev = this.lastNode.ref();
+            this.lastNode.next = node.ref();
+        }
+        this.lastNode = node;
+    }
+
+    /**
+     * @return the metrics this list reports to
+     */
+    public SortedListMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Choose where this list reports the cost of its operations
+     *
+     * @param metrics the metrics to report to, or {@link SortedListMetrics#DISABLED} to stop
+     *                recording
+     */
+    public void setMetrics(SortedListMetrics metrics) {
+        this.metrics = metrics;
+        if (this.index != null) {
+            this.index.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * @return <tt>Optional.ofNullable(node)</tt>, using the node's cached Optional
+     */
+    private static <T> Optional<LinkedListNode<T>> ref(LinkedListNode<T> node) {
+        return node == null ? Optional.empty() : node.ref();
+    }
+
+    /**
+     * Compare two values, reporting the comparison to the metrics
+     */
+    private int compare(T a, T b) {
+        this.metrics.compared();
+        return a.compareTo(b);
+    }
+
+    /**
+     * @return whether the list maintains a skip-list index
+     */
+    public boolean isIndexed() {
+        return this.index != null;
+    }
+
+    /**
+     * Turn the skip-list index on or off
+     *
+     * @param indexed whether to maintain a skip-list index over the list
+     * <p>
+     * Turning the index on builds it over the current contents of the list in O(length).
+     */
+    public void setIndexed(boolean indexed) {
+        if (!indexed) {
+            for (LinkedListNode<T> x = this.headNode; x != null; x = x.next.orElse(null)) {
+                x.skip = null;
+            }
+            this.index = null;
+        } else if (this.index == null) {
+            this.index = new SkipIndex<>();
+            this.index.setMetrics(this.metrics);
+            this.index.rebuild(this.headNode);
+        }
+    }
+
+    /**
+     * @return whether the list currently keeps a hash lookup from values to nodes
+     */
+    public boolean isHashLookup() {
+        return this.lookup != null;
+    }
+
+    /**
+     * Turn the hash lookup from values to nodes on or off
+     *
+     * @param enabled whether to keep a hash lookup
+     * <p>
+     * The lookup only pays off while the list has few distinct values, so it is only built if
+     * the list holds at most {@link #HASH_LOOKUP_LIMIT} of them, and it is dropped again as soon
+     * as an insert pushes the list past that limit (<tt>isHashLookup</tt> then returns false).
+     * Values must have <tt>equals</tt> and <tt>hashCode</tt> consistent with
+     * <tt>compareTo</tt>.
+     * <p>
+     * Turning the lookup on builds it over the current contents of the list in
+     * O(min(nodes, HASH_LOOKUP_LIMIT)).
+     */
+    public void setHashLookup(boolean enabled) {
+        this.lookup = null;
+        if (enabled) {
+            this.lookup = new HashMap<>();
+            for (LinkedListNode<T> x = this.headNode; x != null && this.lookup != null; x = x.next.orElse(null)) {
+                hashed(x);
+            }
+        }
+    }
+
+    /**
+     * @return whether the list turns the hash lookup on by itself for counting workloads
+     */
+    public boolean isAdaptiveHashLookup() {
+        return this.adaptive;
+    }
+
+    /**
+     * Let the list turn the hash lookup on by itself when the workload calls for it
+     *
+     * @param enabled whether to watch the workload
+     * <p>
+     * While the lookup is off, the list counts its unhinted inserts in windows of
+     * {@link #HASH_LOOKUP_WINDOW}. When at most one in sixteen inserts of a window created a new
+     * node, the workload is counting over a small set of keys and the lookup is turned on, as
+     * with <tt>setHashLookup(true)</tt>. If the list holds more than {@link #HASH_LOOKUP_LIMIT}
+     * distinct values, the build gives up after that many, so a window costs at most
+     * O(HASH_LOOKUP_LIMIT) extra work; and a lookup that was dropped for passing the limit is
+     * tried again once a later window qualifies, even if it was turned off with
+     * <tt>setHashLookup(false)</tt>. The same requirement on <tt>equals</tt> and <tt>hashCode</tt>
+     * applies as for <tt>setHashLookup</tt>.
+     */
+    public void setAdaptiveHashLookup(boolean enabled) {
+        this.adaptive = enabled;
+        this.windowInserts = 0;
+        this.windowMisses = 0;
+    }
+
+    /**
+     * Account an unhinted insert to the adaptive window, turning the hash lookup on at the end of
+     * a window in which almost every insert hit an existing value
+     *
+     * @param node the node the insert landed in
+     */
+    private void observe(LinkedListNode<T> node) {
+        if (node.count == 1) {
+            this.windowMisses++;
+        }
+        if (++this.windowInserts == HASH_LOOKUP_WINDOW) {
+            if (this.windowMisses <= HASH_LOOKUP_WINDOW / 16) {
+                setHashLookup(true);
+            }
+            this.windowInserts = 0;
+            this.windowMisses = 0;
+        }
     }
 
     /**
@@ -55,28 +403,41 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * if
      * <tt>elem</tt> is smaller than the smallest element in the list.
      * <p>
-     * This function should run in O(length)
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
      */
     public Optional<LinkedListNode<T>> findRefBefore(T elem) {
+        long start = this.metrics.begin();
+        try {
+            return scanBefore(elem);
+        } finally {
+            this.metrics.end(Operation.FIND_REF_BEFORE, false, start);
+        }
+    }
+
+    private Optional<LinkedListNode<T>> scanBefore(T elem) {
+        if (this.index != null) {
+            return ref(this.index.findBefore(elem, this.headNode, null));
+        }
         LinkedListNode<T> current = this.headNode;
 
         while (current != null) {
             if (this.headNode.value.equals(elem)) {
-                return Optional.of(this.headNode);
+                return this.headNode.ref();
             }
-            if (current.value.compareTo(elem) == 0) {
-                return Optional.of(current);
+            if (compare(current.value, elem) == 0) {
+                return current.ref();
             }
-            else if (this.headNode.value.compareTo(elem) > 0) {
+            else if (compare(this.headNode.value, elem) > 0) {
                 return Optional.empty();
             }
-            else if (current.value.compareTo(elem) > 0) {
+            else if (compare(current.value, elem) > 0) {
                 return current.prev;
             }
             else if (!current.next.isPresent()) {
-                return Optional.of(this.lastNode);
+                return this.lastNode.ref();
             }
             current = current.next.get();
+            this.metrics.hopped();
         }
         return Optional.empty();
     }
@@ -98,38 +459,49 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * function should run in O(|i-j|)
      */
     public Optional<LinkedListNode<T>> findRefBefore(T elem, LinkedListNode<T> hint) {
+        long start = this.metrics.begin();
+        try {
+            return scanBefore(elem, hint);
+        } finally {
+            this.metrics.end(Operation.FIND_REF_BEFORE, true, start);
+        }
+    }
+
+    private Optional<LinkedListNode<T>> scanBefore(T elem, LinkedListNode<T> hint) {
         LinkedListNode<T> current = hint;
 
-        if (current.value.compareTo(elem) == 0) { //If starting point = elem, return
-            return Optional.of(current);
-        } else if (this.headNode.value.compareTo(elem) > 0) {
+        if (compare(current.value, elem) == 0) { //If starting point = elem, return
+            return current.ref();
+        } else if (compare(this.headNode.value, elem) > 0) {
             return Optional.empty();
-        } else if (this.lastNode.value.compareTo(elem) < 0) {
-            return Optional.of(lastNode);
+        } else if (compare(this.lastNode.value, elem) < 0) {
+            return lastNode.ref();
         }
 
-        if (current.value.compareTo(elem) < 0) { //If starting point < elem, iterate forward
+        if (compare(current.value, elem) < 0) { //If starting point < elem, iterate forward
             while (current.next.isPresent()) {
                 current = current.next.get();
-                if (current.value.compareTo(elem) == 0) {
-                    return Optional.of(current);
-                } else if (current.value.compareTo(elem) > 0) {
+                this.metrics.hopped();
+                if (compare(current.value, elem) == 0) {
+                    return current.ref();
+                } else if (compare(current.value, elem) > 0) {
                     return current.prev;
                 }
             }
-            return Optional.of(this.lastNode);
+            return this.lastNode.ref();
         }
 
-        if (current.value.compareTo(elem) > 0) {
+        if (compare(current.value, elem) > 0) {
             while (current.prev.isPresent()) {
-                if (current.value.compareTo(elem) == 0) {
-                    return Optional.of(current);
-                } else if (current.value.compareTo(elem) < 0) {
-                    return Optional.of(current);
+                if (compare(current.value, elem) == 0) {
+                    return current.ref();
+                } else if (compare(current.value, elem) < 0) {
+                    return current.ref();
                 }
                 current = current.prev.get();
+                this.metrics.hopped();
             }
-            return Optional.of(this.headNode);
+            return this.headNode.ref();
         }
         return Optional.empty();
     }
@@ -141,22 +513,42 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * @return <tt>Optional.of(node)</tt> where <tt>node</tt> contains <tt>elem</tt>, or
      * <tt>Optional.empty()</tt> if <tt>elem</tt> is not in the list
      * <p>
-     * This function should run in O(length)
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
      */
     public Optional<LinkedListNode<T>> findRef(T elem) {
+        long start = this.metrics.begin();
+        try {
+            return scan(elem);
+        } finally {
+            this.metrics.end(Operation.FIND_REF, false, start);
+        }
+    }
+
+    private Optional<LinkedListNode<T>> scan(T elem) {
+        if (this.lookup != null) {
+            return ref(this.lookup.get(elem));
+        }
+        if (this.index != null) {
+            Optional<LinkedListNode<T>> before = findRefBefore(elem);
+            if (before.isPresent() && compare(before.get().value, elem) == 0) {
+                return before;
+            }
+            return Optional.empty();
+        }
         LinkedListNode<T> current = this.headNode;
 
         if (current == null) {
             return Optional.empty();
         }
-        while (current.value.compareTo(elem) != 0) {
+        while (compare(current.value, elem) != 0) {
             if (current.next.equals(Optional.empty())) {
                 return Optional.empty();
             }
             current = current.next.get();
+            this.metrics.hopped();
         }
-        if (current.value.compareTo(elem) == 0) {
-            return Optional.of(current);
+        if (compare(current.value, elem) == 0) {
+            return current.ref();
         }
         return Optional.empty();
     }
@@ -173,29 +565,43 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * function should run in O(|i-j|)
      */
     public Optional<LinkedListNode<T>> findRef(T elem, LinkedListNode<T> hint) {
+        long start = this.metrics.begin();
+        try {
+            return scan(elem, hint);
+        } finally {
+            this.metrics.end(Operation.FIND_REF, true, start);
+        }
+    }
+
+    private Optional<LinkedListNode<T>> scan(T elem, LinkedListNode<T> hint) {
         LinkedListNode<T> current = hint;
 
-        if (current.value.compareTo(elem) > 0) {
-            while (!(current.value.compareTo(elem) == 0)){
+        if (compare(current.value, elem) == 0) {
+            return current.ref();
+        }
+        if (compare(current.value, elem) > 0) {
+            while (!(compare(current.value, elem) == 0)){
                 if (current.prev.equals(Optional.empty())) {
                     return Optional.empty();
                 }
                 current = current.prev.get();
-                if (current.value.compareTo(elem) == 0) {
-                    return Optional.of(current);
+                this.metrics.hopped();
+                if (compare(current.value, elem) == 0) {
+                    return current.ref();
                 }
             }
             return Optional.empty();
         }
 
-        if (current.value.compareTo(elem) < 0) {
-            while (!(current.value.compareTo(elem) == 0)) {
+        if (compare(current.value, elem) < 0) {
+            while (!(compare(current.value, elem) == 0)) {
                 if (current.next.equals(Optional.empty())) {
                     return Optional.empty();
                 }
                 current = current.next.get();
-                if (current.value.compareTo(elem) == 0) {
-                    return Optional.of(current);
+                this.metrics.hopped();
+                if (compare(current.value, elem) == 0) {
+                    return current.ref();
                 }
             }
             return Optional.empty();
@@ -216,18 +622,31 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * If the list changes, references to nodes whose values are unchanged should remain valid, even
      * if their index changes.
      *
-     * This function should run in O(idx)
+     * This function should run in O(idx), or in expected O(log length) if the list is indexed
      */
     public LinkedListNode<T> getRef(int idx) throws IndexOutOfBoundsException {
+        long start = this.metrics.begin();
+        try {
+            return walkTo(idx);
+        } finally {
+            this.metrics.end(Operation.GET_REF, false, start);
+        }
+    }
+
+    private LinkedListNode<T> walkTo(int idx) throws IndexOutOfBoundsException {
         if (idx < 0 || idx >= this.length) {
             throw new IndexOutOfBoundsException();
         }
+        if (this.index != null) {
+            return this.index.nodeAt(idx, this.headNode);
+        }
         LinkedListNode<T> current = this.headNode;
 
         int counter = 0;
         for (int acc = 0; acc <= idx; acc += current.count) {
             if (counter == current.count) {
                 current = current.next.get();
+                this.metrics.hopped();
                 counter = 0;
             }
             counter += current.count;
@@ -244,7 +663,7 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      *
      * Note that <tt>idx</tt> refers to the index of an element, not of a node.
      *
-     * This function should run in O(idx)
+     * This function should run in O(idx), or in expected O(log length) if the list is indexed
      */
     public T get(int idx) throws IndexOutOfBoundsException {
         if (idx < 0 || idx >= this.length) {
@@ -254,6 +673,135 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
         return getRef(idx).value;
     }
 
+    /**
+     * Count the elements less than elem
+     *
+     * @param elem the element to rank
+     * @return the number of elements in the list that are strictly less than <tt>elem</tt>
+     * <p>
+     * If the list contains <tt>elem</tt>, this is the index of its first instance; otherwise it
+     * is the index <tt>elem</tt> would have if it were inserted.
+     * <p>
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
+     */
+    public int rank(T elem) {
+        long start = this.metrics.begin();
+        try {
+            if (this.index != null) {
+                return this.index.rank(elem, this.headNode);
+            }
+            int rank = 0;
+            LinkedListNode<T> current = this.headNode;
+            while (current != null && compare(current.value, elem) < 0) {
+                rank += current.count;
+                current = current.next.orElse(null);
+                this.metrics.hopped();
+            }
+            return rank;
+        } finally {
+            this.metrics.end(Operation.RANK, false, start);
+        }
+    }
+
+    /**
+     * Return the index of the first element held by a node
+     *
+     * @param ref the node to look up (must be part of the list)
+     * @return the index of the first instance of <tt>ref.value</tt> in the list
+     * <p>
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
+     */
+    public int indexOf(LinkedListNode<T> ref) {
+        return rank(ref.value);
+    }
+
+    /**
+     * Count the elements less than elem
+     *
+     * @param elem the upper bound (exclusive)
+     * @return the number of elements in the list that are strictly less than <tt>elem</tt>
+     * <p>
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
+     */
+    public int headCount(T elem) {
+        return rank(elem);
+    }
+
+    /**
+     * Count the elements greater than or equal to elem
+     *
+     * @param elem the lower bound (inclusive)
+     * @return the number of elements in the list that are greater than or equal to <tt>elem</tt>
+     * <p>
+     * This function should run in O(length), or in expected O(log length) if the list is indexed
+     */
+    public int tailCount(T elem) {
+        return this.length - rank(elem);
+    }
+
+    /**
+     * Count the elements between lo and hi
+     *
+     * @param lo the lower bound (inclusive)
+     * @param hi the upper bound (inclusive)
+     * @return the number of elements <tt>e</tt> in the list with <tt>lo <= e <= hi</tt>
+     * <p>
+     * The counts of the nodes in the range are summed, without visiting each element. If i is the
+     * position of <tt>lo</tt> and j that of <tt>hi</tt>, this function should run in O(j), or in
+     * expected O(log length) if the list is indexed
+     */
+    public int countBetween(T lo, T hi) {
+        long start = this.metrics.begin();
+        try {
+            if (compare(lo, hi) > 0) {
+                return 0;
+            }
+            if (this.index != null) {
+                Optional<LinkedListNode<T>> last = findRefBefore(hi);
+                int upTo = last.isPresent() ? indexOf(last.get()) + last.get().count : 0;
+                return Math.max(upTo - rank(lo), 0);
+            }
+            int count = 0;
+            for (LinkedListNode<T> x = ceilingNode(lo); x != null && compare(x.value, hi) <= 0;
+                 x = x.next.orElse(null)) {
+                count += x.count;
+                this.metrics.hopped();
+            }
+            return count;
+        } finally {
+            this.metrics.end(Operation.COUNT_BETWEEN, false, start);
+        }
+    }
+
+    /**
+     * Return a view of the elements between lo and hi
+     *
+     * @param lo the lower bound (inclusive)
+     * @param hi the upper bound (inclusive)
+     * @return a lazy view of the elements <tt>e</tt> with <tt>lo <= e <= hi</tt>
+     * <p>
+     * Nothing is computed until the view is iterated or counted, and it reflects the list as it
+     * is at that moment.
+     */
+    public Range range(T lo, T hi) {
+        return new Range(lo, hi);
+    }
+
+    /**
+     * Find the first node holding a value greater than or equal to elem
+     *
+     * @return that node, or null if every value in the list is less than <tt>elem</tt>
+     */
+    private LinkedListNode<T> ceilingNode(T elem) {
+        Optional<LinkedListNode<T>> before = findRefBefore(elem);
+        if (!before.isPresent()) {
+            return this.headNode;
+        } else if (compare(before.get().value, elem) == 0) {
+            return before.get();
+        }
+        return before.get().next.orElse(null);
+    }
+
     /**
      * Insert a new value into the list
      *
@@ -267,7 +815,9 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * If <tt>elem</tt> is already in the list, the existing node should just have its
      * <tt>count</tt> field updated instead of creating a new node.
      * <p>
-     * This function should run in O(length)
+     * This function should run in O(length), or in expected O(log length) if the list is indexed.
+     * With the hash lookup on, inserting a value that is already in the list runs in expected
+     * O(1) (or expected O(log length) if the list is indexed) and allocates nothing.
      */
 
     /*findRefBefore(elem) outputs:
@@ -276,41 +826,63 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
     Optional.empty() (elem is smaller than every other elem);
     */
     public LinkedListNode<T> insert(T elem) {
+        long start = this.metrics.begin();
+        try {
+            LinkedListNode<T> ret = place(elem);
+            if (this.adaptive && this.lookup == null) {
+                observe(ret);
+            }
+            return ret;
+        } finally {
+            this.metrics.end(Operation.INSERT, false, start);
+        }
+    }
+
+    private LinkedListNode<T> place(T elem) {
+        LinkedListNode<T> existing = this.lookup == null ? null : this.lookup.get(elem);
+        if (existing != null) {
+            existing.count++;
+            counted(existing, 1);
+            this.length++;
+            return existing;
+        }
         Optional<LinkedListNode<T>> current = findRefBefore(elem); //Sets iterator to findRefBefore(elem)
+
+        if (current.isPresent() && compare(current.get().value, elem) == 0) { //Elem exists
+            current.get().count++;
+            counted(current.get(), 1);
+            this.length++;
+            return current.get();
+        }
         LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
 
         if (this.headNode == null) { //Empty list
             this.headNode = insertElem;
             this.lastNode = insertElem;
             this.length++;
-            return insertElem;
+            return indexed(insertElem);
         }
         else if (current.equals(Optional.empty())) { //Elem is new head
-            this.headNode.prev = Optional.of(insertElem);
-            insertElem.next = Optional.of(this.headNode);
+            this.headNode.prev = insertElem.ref();
+            insertElem.next = this.headNode.ref();
             this.headNode = insertElem;
             this.length++;
-            return insertElem;
-        }
-        else if (current.get().value.compareTo(elem) == 0) { //Elem exists
-            current.get().count++;
-            this.length++;
-            return current.get();
+            return indexed(insertElem);
         }
         else if (current.get().value.equals(this.lastNode.value)) { //Elem is new tail
-            this.lastNode.next = Optional.of(insertElem);
-            insertElem.prev = Optional.of(this.lastNode);
+            this.lastNode.next = insertElem.ref();
+            insertElem.prev = this.lastNode.ref();
             this.lastNode = insertElem;
             this.length++;
-            return insertElem;
+            return indexed(insertElem);
         }
-        else if (current.get().value.compareTo(elem) < 0) { //Middle of list
+        else if (compare(current.get().value, elem) < 0) { //Middle of list
             insertElem.next = current.get().next;
-            current.get().next.get().prev = Optional.of(insertElem);
+            current.get().next.get().prev = insertElem.ref();
             insertElem.prev = current;
-            current.get().next = Optional.of(insertElem);
+            current.get().next = insertElem.ref();
             this.length++;
-            return insertElem;
+            return indexed(insertElem);
         }
         return insertElem;
     }
@@ -333,65 +905,89 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * function should run in O(|i-j|)
      */
     public LinkedListNode<T> insert(T elem, LinkedListNode<T> hint) {
+        long start = this.metrics.begin();
+        try {
+            return place(elem, hint);
+        } finally {
+            this.metrics.end(Operation.INSERT, true, start);
+        }
+    }
+
+    private LinkedListNode<T> place(T elem, LinkedListNode<T> hint) {
+        LinkedListNode<T> existing = this.lookup == null ? null : this.lookup.get(elem);
+        if (existing != null) {
+            existing.count++;
+            counted(existing, 1);
+            this.length++;
+            return existing;
+        }
         LinkedListNode<T> current = hint;
-        LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
 
         if (this.headNode == null) {
+            LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
             this.headNode = insertElem;
             this.lastNode = insertElem;
             this.length++;
-            return insertElem;
+            return indexed(insertElem);
         }
 
-        while (!(current.value.compareTo(elem) == 0)) {
-            if (current.value.compareTo(elem) > 0) {
-                if (findRefBefore(elem).equals(Optional.empty())) {
-                    this.headNode.prev = Optional.of(insertElem);
-                    insertElem.next = Optional.of(this.headNode);
+        while (!(compare(current.value, elem) == 0)) {
+            if (compare(current.value, elem) > 0) {
+                if (compare(this.headNode.value, elem) > 0) {
+                    LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
+                    this.headNode.prev = insertElem.ref();
+                    insertElem.next = this.headNode.ref();
                     this.headNode = insertElem;
                     this.length++;
-                    return insertElem;
+                    return indexed(insertElem);
                 }
                 current = current.prev.get();
+                this.metrics.hopped();
 
-                if (current.value.compareTo(elem) < 0) {
+                if (compare(current.value, elem) < 0) {
                     //2 4
-                    insertElem.prev = Optional.of(current);
+                    LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
+                    insertElem.prev = current.ref();
                     insertElem.next = current.next;
-                    current.next.get().prev = Optional.of(insertElem);
-                    current.next = Optional.of(insertElem);
+                    current.next.get().prev = insertElem.ref();
+                    current.next = insertElem.ref();
                     this.length++;
-                    return insertElem;
+                    return indexed(insertElem);
                 }
 
             }
 
-            if (current.value.compareTo(elem) < 0) {
+            if (compare(current.value, elem) < 0) {
                 if (current.next.equals(Optional.empty())) {
-                    this.lastNode.next = Optional.of(insertElem);
-                    insertElem.prev = Optional.of(this.lastNode);
+                    LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
+                    this.lastNode.next = insertElem.ref();
+                    insertElem.prev = this.lastNode.ref();
                     this.lastNode = insertElem;
                     this.length++;
-                    return insertElem;
+                    return indexed(insertElem);
                 }
                 current = current.next.get();
-                if (current.value.compareTo(elem) == 0) {
+                this.metrics.hopped();
+                if (compare(current.value, elem) == 0) {
                     current.count++;
+                    counted(current, 1);
                     this.length++;
                     return current;
                 }
-                if (current.value.compareTo(elem) > 0) {
-                    insertElem.next = Optional.of(current);
+                if (compare(current.value, elem) > 0) {
+                    LinkedListNode<T> insertElem = new LinkedListNode<>(elem, 1);
+                    insertElem.next = current.ref();
                     insertElem.prev = current.prev;
-                    current.prev.get().next = Optional.of(insertElem);
-                    current.prev = Optional.of(insertElem);
+                    current.prev.get().next = insertElem.ref();
+                    current.prev = insertElem.ref();
                     this.length++;
-                    return insertElem;
+                    return indexed(insertElem);
                 }
             }
         }
-        if (current.value.compareTo(elem) == 0) {
+        if (compare(current.value, elem) == 0) {
             current.count++;
+            counted(current, 1);
             this.length++;
             return current;
         }
@@ -399,25 +995,321 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
     }
 
     /**
-     * Remove one instance of the value held by <tt>ref</tt> from the list
+     * Insert n instances of a value into the list
      *
-     * @param ref the node holding the value to remove (must be part of the list)
-     * @return the removed value
+     * @param elem the value to insert
+     * @param n    the number of instances to insert
+     * @return a reference to the node holding the inserted value
+     * @throws IllegalArgumentException if <tt>n</tt> < 1
      * <p>
-     * If the list only contains a single instance of the value being removed, then the node should
-     * be removed from the list as well. If the list contains multiple instances of the value, the
-     * node itself should remain in the list.
+     * This function should run in the same time as <tt>insert(elem)</tt>
+     */
+    public LinkedListNode<T> insertN(T elem, int n) throws IllegalArgumentException {
+        if (n < 1) {
+            throw new IllegalArgumentException();
+        }
+        long start = this.metrics.begin();
+        try {
+            return added(insert(elem), n - 1);
+        } finally {
+            this.metrics.end(Operation.INSERT_N, false, start);
+        }
+    }
+
+    /**
+     * Insert n instances of a value into the list
+     *
+     * @param elem the value to insert
+     * @param n    the number of instances to insert
+     * @param hint a reference to a node "close" to <tt>elem</tt>
+     * @return a reference to the node holding the inserted value
+     * @throws IllegalArgumentException if <tt>n</tt> < 1
      * <p>
-     * This function should run in O(1)
+     * This function should run in the same time as <tt>insert(elem, hint)</tt>
      */
-    public T remove(LinkedListNode<T> ref) {
-            if (ref.count > 1) {
-                ref.count--;
-                this.length--;
-                return ref.value;
-            }
-            else if (ref.count == 1) {
-                if (ref.equals(headNode) && ref.equals(lastNode)) {
+    public LinkedListNode<T> insertN(T elem, int n, LinkedListNode<T> hint) throws IllegalArgumentException {
+        if (n < 1) {
+            throw new IllegalArgumentException();
+        }
+        long start = this.metrics.begin();
+        try {
+            return added(insert(elem, hint), n - 1);
+        } finally {
+            this.metrics.end(Operation.INSERT_N, true, start);
+        }
+    }
+
+    /**
+     * Add n more instances to a node that was just inserted into
+     */
+    private LinkedListNode<T> added(LinkedListNode<T> node, int n) {
+        if (n > 0) {
+            node.count += n;
+            counted(node, n);
+            this.length += n;
+        }
+        return node;
+    }
+
+    /**
+     * Insert every value of a collection into the list
+     *
+     * @param elems the values to insert
+     * <p>
+     * The values are sorted and duplicates collapsed before they are merged into the list in a
+     * single pass, bumping the <tt>count</tt> of nodes that already hold a value.
+     * <p>
+     * If m is the number of values inserted, this function should run in O(length + m log m)
+     */
+    public void insertAll(Collection<? extends T> elems) {
+        insertSorted(elems.toArray());
+    }
+
+    /**
+     * Insert every value of an array into the list
+     *
+     * @param elems the values to insert (the array itself is left untouched)
+     * <p>
+     * If m is the number of values inserted, this function should run in O(length + m log m)
+     */
+    public void insertAll(T[] elems) {
+        insertSorted(Arrays.copyOf(elems, elems.length, Object[].class));
+    }
+
+    /**
+     * Insert every value produced by an iterator into the list
+     *
+     * @param elems the values to insert
+     * <p>
+     * If m is the number of values inserted, this function should run in O(length + m log m)
+     */
+    public void insertAll(Iterator<? extends T> elems) {
+        Object[] batch = new Object[16];
+        int size = 0;
+        while (elems.hasNext()) {
+            if (size == batch.length) {
+                batch = Arrays.copyOf(batch, size * 2);
+            }
+            batch[size++] = elems.next();
+        }
+        insertSorted(Arrays.copyOf(batch, size));
+    }
+
+    /**
+     * Sort a batch of values in place, collapse it into runs and merge the runs into the list
+     */
+    @SuppressWarnings("unchecked")
+    private void insertSorted(Object[] batch) {
+        if (batch.length == 0) {
+            return;
+        }
+        long start = this.metrics.begin();
+        try {
+            Arrays.sort(batch, (a, b) -> compare((T) a, (T) b));
+
+            int[] counts = new int[batch.length];
+            int runs = 0;
+            for (int i = 0; i < batch.length; i++) {
+                if (runs > 0 && compare((T) batch[runs - 1], (T) batch[i]) == 0) {
+                    counts[runs - 1]++;
+                } else {
+                    batch[runs] = batch[i];
+                    counts[runs] = 1;
+                    runs++;
+                }
+            }
+            mergeRuns(batch, counts, runs);
+        } finally {
+            this.metrics.end(Operation.INSERT_ALL, false, start);
+        }
+    }
+
+    /**
+     * Merge sorted, distinct runs of values into the list in one pass over the chain
+     *
+     * @param values the run values, strictly increasing
+     * @param counts the number of instances of each run value
+     * @param runs   the number of runs
+     * <p>
+     * Nodes already holding a run value have their count increased; the other values get new
+     * nodes. If the list is indexed, the index is rebuilt once at the end.
+     * <p>
+     * This function should run in O(length + runs)
+     */
+    private void mergeRuns(Object[] values, int[] counts, int runs) {
+        boolean[] matched = new boolean[runs];
+        LinkedListNode<T>[] at = locateRuns(values, runs, matched);
+        spliceRuns(values, counts, runs, at, matched);
+        if (this.index != null) {
+            this.index.rebuild(this.headNode);
+        }
+    }
+
+    /**
+     * Find where each of a batch of runs belongs, in one pass over the chain and without changing
+     * the list, so that a <tt>compareTo</tt> that throws leaves the list as it was
+     *
+     * @param values  the run values, strictly increasing
+     * @param runs    the number of runs
+     * @param matched receives at <tt>matched[i]</tt> whether a node already holds run <tt>i</tt>
+     * @return for each run, the node holding its value if there is one, and otherwise the node
+     * it belongs right after (null if it belongs before the head)
+     * <p>
+     * This function should run in O(length + runs)
+     */
+    @SuppressWarnings("unchecked")
+    private LinkedListNode<T>[] locateRuns(Object[] values, int runs, boolean[] matched) {
+        LinkedListNode<T>[] at = LinkedListNode.newArray(runs);
+        LinkedListNode<T> before = null;
+        LinkedListNode<T> current = this.headNode;
+        for (int i = 0; i < runs; i++) {
+            T elem = (T) values[i];
+            while (current != null && compare(current.value, elem) < 0) {
+                before = current;
+                current = current.next.orElse(null);
+                this.metrics.hopped();
+            }
+            matched[i] = current != null && compare(current.value, elem) == 0;
+            at[i] = matched[i] ? current : before;
+        }
+        return at;
+    }
+
+    /**
+     * Apply runs placed by <tt>locateRuns</tt>, without comparing any values
+     *
+     * @param values  the run values, strictly increasing
+     * @param counts  the number of instances of each run value
+     * @param runs    the number of runs
+     * @param at      the positions found by <tt>locateRuns</tt>; on return, <tt>at[i]</tt> is the
+     *                node now holding run <tt>i</tt>
+     * @param matched which runs <tt>locateRuns</tt> found a node for
+     * <p>
+     * The index is not updated; the caller rebuilds it.
+     */
+    @SuppressWarnings("unchecked")
+    private void spliceRuns(Object[] values, int[] counts, int runs, LinkedListNode<T>[] at,
+                            boolean[] matched) {
+        LinkedListNode<T> lastBefore = null;
+        LinkedListNode<T> lastNew = null;
+        for (int i = 0; i < runs; i++) {
+            this.length += counts[i];
+            if (matched[i]) {
+                at[i].count += counts[i];
+                lastNew = null;
+                continue;
+            }
+            // Runs that belong after the same node go after each other, in order
+            LinkedListNode<T> before = lastNew != null && at[i] == lastBefore ? lastNew : at[i];
+            LinkedListNode<T> after = before == null ? this.headNode : before.next.orElse(null);
+            LinkedListNode<T> node = new LinkedListNode<>((T) values[i], counts[i]);
+            hashed(node);
+            node.prev = ref(before);
+            node.next = ref(after);
+            if (before == null) {
+                this.headNode = node;
+            } else {
+                before.next = node.ref();
+            }
+            if (after == null) {
+                this.lastNode = node;
+            } else {
+                after.prev = node.ref();
+            }
+            lastBefore = at[i];
+            lastNew = node;
+            at[i] = node;
+        }
+    }
+
+    /**
+     * Add a node that has just been linked into the chain to the index and the hash lookup, if the
+     * list keeps them
+     *
+     * @param node the new node
+     * @return <tt>node</tt>
+     */
+    private LinkedListNode<T> indexed(LinkedListNode<T> node) {
+        if (this.index != null) {
+            this.index.insert(node, this.headNode);
+        }
+        hashed(node);
+        return node;
+    }
+
+    /**
+     * Add a new node to the hash lookup, if there is one, dropping the lookup if the list now has
+     * too many distinct values
+     *
+     * @param node the new node
+     */
+    private void hashed(LinkedListNode<T> node) {
+        if (this.lookup != null) {
+            this.lookup.put(node.value, node);
+            if (this.lookup.size() > HASH_LOOKUP_LIMIT) {
+                this.lookup = null;
+            }
+        }
+    }
+
+    /**
+     * Tell the index, if there is one, that the count of a node still in the chain changed
+     *
+     * @param node  the node whose count changed
+     * @param delta the change in its count
+     */
+    private void counted(LinkedListNode<T> node, int delta) {
+        if (this.index != null) {
+            this.index.adjust(node, delta);
+        }
+    }
+
+    /**
+     * Drop a node that is about to be unlinked from the chain from the index and the hash lookup,
+     * if the list keeps them
+     *
+     * @param node the node being unlinked
+     */
+    private void unindexed(LinkedListNode<T> node) {
+        if (this.index != null) {
+            this.index.remove(node);
+        }
+        if (this.lookup != null) {
+            this.lookup.remove(node.value);
+        }
+    }
+
+    /**
+     * Remove one instance of the value held by <tt>ref</tt> from the list
+     *
+     * @param ref the node holding the value to remove (must be part of the list)
+     * @return the removed value
+     * <p>
+     * If the list only contains a single instance of the value being removed, then the node should
+     * be removed from the list as well. If the list contains multiple instances of the value, the
+     * node itself should remain in the list.
+     * <p>
+     * This function should run in O(1), or in expected O(log length) if the list is indexed
+     */
+    public T remove(LinkedListNode<T> ref) {
+        long start = this.metrics.begin();
+        try {
+            return take(ref);
+        } finally {
+            this.metrics.end(Operation.REMOVE, false, start);
+        }
+    }
+
+    private T take(LinkedListNode<T> ref) {
+            if (ref.count > 1) {
+                ref.count--;
+                counted(ref, -1);
+                this.length--;
+                return ref.value;
+            }
+            else if (ref.count == 1) {
+                unindexed(ref);
+                if (ref.equals(headNode) && ref.equals(lastNode)) {
                      this.headNode = null;
                      this.lastNode = null;
                      ref.next = Optional.empty();
@@ -466,17 +1358,28 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * If the node contains more than <tt>n</tt> instances of the value, then the node itself should
      * remain in the list.
      *
-     * This function should run in O(1)
+     * This function should run in O(1), or in expected O(log length) if the list is indexed
      */
     public T removeN(LinkedListNode<T> ref, int n) throws IllegalArgumentException {
+        long start = this.metrics.begin();
+        try {
+            return takeN(ref, n);
+        } finally {
+            this.metrics.end(Operation.REMOVE_N, false, start);
+        }
+    }
+
+    private T takeN(LinkedListNode<T> ref, int n) throws IllegalArgumentException {
         if (ref.count < n) {
             throw new IllegalArgumentException();
         }  else if (ref.count > n) {
             ref.count -= n;
+            counted(ref, -n);
             this.length -= n;
             return ref.value;
         }
         else {
+            unindexed(ref);
             if (ref.equals(headNode) && ref.equals(lastNode)) {
                 this.headNode = null;
                 this.lastNode = null;
@@ -509,6 +1412,7 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
             ref.next = Optional.empty();
             ref.prev = Optional.empty();
             ref.count -= n;
+            this.length -= n;
             return ref.value;
         }
     }
@@ -519,9 +1423,19 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * @param ref the node holding the value to remove (must be part of the list)
      * @return the removed value
      * <p>
-     * This function should run in O(1)
+     * This function should run in O(1), or in expected O(log length) if the list is indexed
      */
     public T removeAll(LinkedListNode<T> ref) {
+        long start = this.metrics.begin();
+        try {
+            return takeAll(ref);
+        } finally {
+            this.metrics.end(Operation.REMOVE_ALL, false, start);
+        }
+    }
+
+    private T takeAll(LinkedListNode<T> ref) {
+        unindexed(ref);
         if (ref.equals(headNode) && ref.equals(lastNode)) {
             this.headNode = null;
             this.lastNode = null;
@@ -572,9 +1486,14 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
      * then this function should run in O(|i-j|)
      */
     public LinkedListNode<T> update(LinkedListNode<T> ref, T elem) {
-        LinkedListNode<T> ret = insert(elem, ref);
-        remove(ref);
-        return ret;
+        long start = this.metrics.begin();
+        try {
+            LinkedListNode<T> ret = insert(elem, ref);
+            remove(ref);
+            return ret;
+        } finally {
+            this.metrics.end(Operation.UPDATE, true, start);
+        }
     }
 
     /**
@@ -593,6 +1512,247 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
         update(getRef(idx), elem);
     }
 
+    /**
+     * Modifies many values presently in the list at once
+     *
+     * @param moves pairs of a reference to a node holding a value to be updated and the new value
+     *              for one instance of it; a node may appear several times, at most as many
+     *              times as its count
+     * @return the nodes now holding the new values, in the order of <tt>moves</tt>
+     * @throws IllegalArgumentException if a node appears more times than its count, in which case
+     *                                  the list is left unchanged
+     * <p>
+     * The new values are sorted and the place of each is found in a single sweep over the chain
+     * before anything changes, so a <tt>compareTo</tt> that throws leaves the list untouched. The
+     * new values are then spliced in and the old instances removed, which takes O(1) each since
+     * the caller holds their nodes. Nodes keep holding their value: a node whose instances all
+     * moved away is removed with a count of 0, exactly as by <tt>remove</tt>, and new values
+     * that are not in the list yet get new nodes. If the list is indexed, the index is rebuilt
+     * once at the end instead of being updated per move.
+     * <p>
+     * If k is the number of moves, this function should run in O(length + k log k), rather than
+     * the O(k * length) of k separate updates.
+     */
+    @SuppressWarnings("unchecked")
+    public List<LinkedListNode<T>> updateAll(List<Map.Entry<LinkedListNode<T>, T>> moves)
+            throws IllegalArgumentException {
+        long start = this.metrics.begin();
+        try {
+            IdentityHashMap<LinkedListNode<T>, Integer> taken = new IdentityHashMap<>();
+            for (Map.Entry<LinkedListNode<T>, T> move : moves) {
+                if (taken.merge(move.getKey(), 1, Integer::sum) > move.getKey().count) {
+                    throw new IllegalArgumentException("Node updated more times than its count");
+                }
+            }
+
+            Integer[] order = new Integer[moves.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compare(moves.get(a).getValue(), moves.get(b).getValue()));
+            Object[] values = new Object[order.length];
+            int[] counts = new int[order.length];
+            int[] runOf = new int[order.length];
+            int runs = 0;
+            for (int i : order) {
+                T elem = moves.get(i).getValue();
+                if (runs > 0 && compare((T) values[runs - 1], elem) == 0) {
+                    counts[runs - 1]++;
+                } else {
+                    values[runs] = elem;
+                    counts[runs] = 1;
+                    runs++;
+                }
+                runOf[i] = runs - 1;
+            }
+            boolean[] matched = new boolean[runs];
+            LinkedListNode<T>[] placed = locateRuns(values, runs, matched);
+
+            SkipIndex<T> index = this.index;
+            this.index = null;
+            spliceRuns(values, counts, runs, placed, matched);
+            for (Map.Entry<LinkedListNode<T>, T> move : moves) {
+                LinkedListNode<T> ref = move.getKey();
+                take(ref);
+                if (ref.count == 0) {
+                    ref.skip = null;
+                    ref.span = null;
+                }
+            }
+            this.index = index;
+            if (this.index != null) {
+                this.index.rebuild(this.headNode);
+            }
+
+            LinkedListNode<T>[] ret = LinkedListNode.newArray(order.length);
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = placed[runOf[i]];
+            }
+            return Arrays.asList(ret);
+        } finally {
+            this.metrics.end(Operation.UPDATE, false, start);
+        }
+    }
+
+    /**
+     * Move every element of another list into this one
+     *
+     * @param other the list to take the elements of; it is left empty
+     * @throws IllegalArgumentException if <tt>other</tt> is this list
+     * <p>
+     * Both chains are walked once in lockstep. Nodes of <tt>other</tt> whose value is new to this
+     * list are spliced into the chain as they are, and the counts of the others are added to the
+     * matching nodes of this list, so nothing is allocated. References to nodes of
+     * <tt>other</tt> stay valid if their value was new, and their count drops to 0 otherwise. If
+     * this list is indexed, the index is rebuilt once at the end.
+     * <p>
+     * If m is the number of nodes of <tt>other</tt>, this function should run in O(length + m)
+     */
+    public void mergeFrom(SortedList<T> other) throws IllegalArgumentException {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge a list into itself");
+        }
+        long start = this.metrics.begin();
+        try {
+            takeFrom(other);
+        } finally {
+            this.metrics.end(Operation.MERGE, false, start);
+        }
+    }
+
+    private void takeFrom(SortedList<T> other) {
+        LinkedListNode<T> before = null;
+        LinkedListNode<T> current = this.headNode;
+        LinkedListNode<T> theirs = other.headNode;
+
+        while (theirs != null) {
+            LinkedListNode<T> next = theirs.next.orElse(null);
+            while (current != null && compare(current.value, theirs.value) < 0) {
+                before = current;
+                current = current.next.orElse(null);
+                this.metrics.hopped();
+            }
+            this.length += theirs.count;
+            if (current != null && compare(current.value, theirs.value) == 0) {
+                current.count += theirs.count;
+                theirs.count = 0;
+                theirs.next = Optional.empty();
+                theirs.prev = Optional.empty();
+            } else {
+                theirs.skip = null;
+                theirs.span = null;
+                theirs.prev = ref(before);
+                theirs.next = ref(current);
+                if (before == null) {
+                    this.headNode = theirs;
+                } else {
+                    before.next = theirs.ref();
+                }
+                if (current == null) {
+                    this.lastNode = theirs;
+                } else {
+                    current.prev = theirs.ref();
+                }
+                hashed(theirs);
+                before = theirs;
+            }
+            theirs = next;
+        }
+
+        other.headNode = null;
+        other.lastNode = null;
+        other.length = 0;
+        other.handovers++;
+        if (other.index != null) {
+            other.index.rebuild(null);
+        }
+        if (other.lookup != null) {
+            other.lookup.clear();
+        }
+        if (this.index != null) {
+            this.index.rebuild(this.headNode);
+        }
+    }
+
+    /**
+     * Build the union of this list and another, as multisets
+     *
+     * @param other the other list
+     * @return a new list in which each value occurs as many times as in both lists together
+     * <p>
+     * If m is the number of nodes of <tt>other</tt>, this function should run in O(length + m)
+     */
+    public SortedList<T> union(SortedList<T> other) {
+        return combine(other, (mine, theirs) -> mine + theirs, Operation.UNION);
+    }
+
+    /**
+     * Build the intersection of this list and another, as multisets
+     *
+     * @param other the other list
+     * @return a new list in which each value occurs as many times as in the list holding fewer
+     * instances of it
+     * <p>
+     * If m is the number of nodes of <tt>other</tt>, this function should run in O(length + m)
+     */
+    public SortedList<T> intersect(SortedList<T> other) {
+        return combine(other, Math::min, Operation.INTERSECT);
+    }
+
+    /**
+     * Build the difference of this list and another, as multisets
+     *
+     * @param other the other list
+     * @return a new list in which each value occurs as many times as it does in this list minus
+     * the number of times it does in <tt>other</tt>, if that is positive
+     * <p>
+     * If m is the number of nodes of <tt>other</tt>, this function should run in O(length + m)
+     */
+    public SortedList<T> difference(SortedList<T> other) {
+        return combine(other, (mine, theirs) -> mine - theirs, Operation.DIFFERENCE);
+    }
+
+    /**
+     * Walk this list and another in lockstep, appending every value whose combined count is
+     * positive to a new list
+     *
+     * @param counts combines the count of a value in this list and in <tt>other</tt> (0 where
+     *               a list does not hold it)
+     * @param op     the operation to report the walk as
+     * @return the new list, indexed if this list is
+     */
+    private SortedList<T> combine(SortedList<T> other, IntBinaryOperator counts, Operation op) {
+        long start = this.metrics.begin();
+        try {
+            return walkBoth(other, counts);
+        } finally {
+            this.metrics.end(op, false, start);
+        }
+    }
+
+    private SortedList<T> walkBoth(SortedList<T> other, IntBinaryOperator counts) {
+        SortedList<T> ret = new SortedList<>();
+        LinkedListNode<T> mine = this.headNode;
+        LinkedListNode<T> theirs = other.headNode;
+        while (mine != null || theirs != null) {
+            int cmp = mine == null ? 1 : theirs == null ? -1 : compare(mine.value, theirs.value);
+            T value = cmp <= 0 ? mine.value : theirs.value;
+            int count = counts.applyAsInt(cmp <= 0 ? mine.count : 0, cmp >= 0 ? theirs.count : 0);
+            if (count > 0) {
+                ret.append(value, count);
+            }
+            if (cmp <= 0) {
+                mine = mine.next.orElse(null);
+            }
+            if (cmp >= 0) {
+                theirs = theirs.next.orElse(null);
+            }
+            this.metrics.hopped();
+        }
+        ret.setIndexed(isIndexed());
+        return ret;
+    }
+
     /**
      * Return an iterator over the elements of the collection
      *
@@ -626,4 +1786,453 @@ public class SortedList<T extends Comparable<T>> implements Iterable<T> {
             }
         };
     }
+
+    /**
+     * Return the nodes of the list, each standing for a (value, count) pair
+     *
+     * @return an iterable over the nodes of the list, in sorted order
+     * <p>
+     * Unlike <tt>iterator()</tt>, duplicates are not expanded: each distinct value is produced
+     * once, and its number of instances is the node's <tt>count</tt>. The iterator's <tt>next</tt>
+     * and <tt>hasNext</tt> methods run in O(1) and allocate nothing.
+     */
+    public Iterable<LinkedListNode<T>> entries() {
+        return () -> new Iterator<LinkedListNode<T>>() {
+            private LinkedListNode<T> current = headNode;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public LinkedListNode<T> next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                LinkedListNode<T> ret = current;
+                current = current.next.orElse(null);
+                return ret;
+            }
+        };
+    }
+
+    /**
+     * @return a sequential stream of the nodes of the list, as <tt>entries()</tt>
+     * <p>
+     * The stream's spliterator is SIZED and SUBSIZED: the nodes are counted the first time its
+     * size is needed, and splitting walks the chain to the middle node, so a parallel stream
+     * cuts the nodes in halves as it does the elements. The list must not be changed while it is
+     * being traversed.
+     */
+    public Stream<LinkedListNode<T>> entryStream() {
+        return StreamSupport.stream(new EntrySpliterator(this.headNode, -1), false);
+    }
+
+    /**
+     * Return a spliterator over the elements of the list
+     *
+     * @return a SIZED, SUBSIZED, SORTED and ORDERED spliterator over the elements
+     * <p>
+     * Splitting cuts the remaining elements in half by walking the chain to the middle element
+     * (or, if the list is indexed, by looking it up through the index), so parallel streams
+     * spread the list over several threads. The list must not be changed while it is being
+     * traversed.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ElementSpliterator(this.headNode, 0, 0, this.length);
+    }
+
+    /**
+     * @return a sequential stream of the elements of the list
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Spliterator over <tt>remaining</tt> nodes starting from <tt>node</tt>; a negative
+     * <tt>remaining</tt> means every node up to the end of the chain, to be counted when needed
+     */
+    private class EntrySpliterator implements Spliterator<LinkedListNode<T>> {
+        private LinkedListNode<T> node;
+        private int remaining;
+
+        private EntrySpliterator(LinkedListNode<T> node, int remaining) {
+            this.node = node;
+            this.remaining = remaining;
+        }
+
+        private int remaining() {
+            if (this.remaining < 0) {
+                this.remaining = 0;
+                for (LinkedListNode<T> x = this.node; x != null; x = x.next.orElse(null)) {
+                    this.remaining++;
+                }
+            }
+            return this.remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super LinkedListNode<T>> action) {
+            if (remaining() == 0) {
+                return false;
+            }
+            action.accept(this.node);
+            this.remaining--;
+            this.node = this.remaining > 0 ? this.node.next.get() : null;
+            return true;
+        }
+
+        @Override
+        public Spliterator<LinkedListNode<T>> trySplit() {
+            int half = remaining() / 2;
+            if (half < 1) {
+                return null;
+            }
+            Spliterator<LinkedListNode<T>> prefix = new EntrySpliterator(this.node, half);
+            for (int i = 0; i < half; i++) {
+                this.node = this.node.next.get();
+            }
+            this.remaining -= half;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED | Spliterator.DISTINCT
+                    | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Spliterator over the elements from position <tt>pos</tt>, which is instance <tt>offset</tt>
+     * of the value held by <tt>node</tt>, to <tt>pos + remaining</tt>
+     */
+    private class ElementSpliterator implements Spliterator<T> {
+        private LinkedListNode<T> node;
+        private int offset;
+        private int pos;
+        private int remaining;
+
+        private ElementSpliterator(LinkedListNode<T> node, int offset, int pos, int remaining) {
+            this.node = node;
+            this.offset = offset;
+            this.pos = pos;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (this.remaining == 0) {
+                return false;
+            }
+            action.accept(this.node.value);
+            this.remaining--;
+            this.pos++;
+            this.offset++;
+            if (this.offset == this.node.count && this.remaining > 0) {
+                this.node = this.node.next.get();
+                this.offset = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (this.remaining > 0) {
+                int n = Math.min(this.node.count - this.offset, this.remaining);
+                for (int i = 0; i < n; i++) {
+                    action.accept(this.node.value);
+                }
+                this.remaining -= n;
+                this.pos += n;
+                this.offset = 0;
+                if (this.remaining > 0) {
+                    this.node = this.node.next.get();
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int half = this.remaining / 2;
+            if (half < 1) {
+                return null;
+            }
+            int mid = this.pos + half;
+            LinkedListNode<T> midNode;
+            int midOffset;
+            if (index != null) {
+                midNode = getRef(mid);
+                midOffset = mid - indexOf(midNode);
+            } else {
+                midNode = this.node;
+                int start = this.pos - this.offset;
+                while (start + midNode.count <= mid) {
+                    start += midNode.count;
+                    midNode = midNode.next.get();
+                }
+                midOffset = mid - start;
+            }
+
+            Spliterator<T> prefix = new ElementSpliterator(this.node, this.offset, this.pos, half);
+            this.node = midNode;
+            this.offset = midOffset;
+            this.pos = mid;
+            this.remaining -= half;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return this.remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.ORDERED
+                    | Spliterator.NONNULL;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * A lazy view of the elements of the list within a closed range of values.
+     * <p>
+     * Iteration starts from the first node at or above the lower bound (found with
+     * <tt>findRefBefore</tt>) and stops at the first node above the upper bound. Finding the
+     * first node is reported to the metrics as a <tt>RANGE</tt> operation, and each step to the
+     * next node as a <tt>RANGE_NEXT</tt>.
+     */
+    public class Range implements Iterable<T> {
+        private final T lo;
+        private final T hi;
+
+        private Range(T lo, T hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * @return the number of elements in the range, as <tt>countBetween</tt>
+         */
+        public int count() {
+            return countBetween(this.lo, this.hi);
+        }
+
+        /**
+         * @return an iterator over the elements in the range, in sorted order
+         * <p>
+         * Creating the iterator costs one <tt>findRefBefore</tt>; after that, <tt>next</tt> and
+         * <tt>hasNext</tt> run in O(1)
+         */
+        @Override
+        public Iterator<T> iterator() {
+            LinkedListNode<T> first;
+            long start = metrics.begin();
+            try {
+                first = inRange(compare(this.lo, this.hi) > 0 ? null : ceilingNode(this.lo));
+            } finally {
+                metrics.end(Operation.RANGE, false, start);
+            }
+            return new Iterator<T>() {
+                private LinkedListNode<T> current = first;
+                private int count = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return current != null;
+                }
+
+                @Override
+                public T next() {
+                    if (current == null) {
+                        throw new NoSuchElementException();
+                    }
+                    T ret = current.value;
+                    count++;
+                    if (count >= current.count) {
+                        long start = metrics.begin();
+                        try {
+                            metrics.hopped();
+                            current = inRange(current.next.orElse(null));
+                        } finally {
+                            metrics.end(Operation.RANGE_NEXT, false, start);
+                        }
+                        count = 0;
+                    }
+                    return ret;
+                }
+            };
+        }
+
+        private LinkedListNode<T> inRange(LinkedListNode<T> node) {
+            return node != null && compare(node.value, this.hi) <= 0 ? node : null;
+        }
+    }
+
+    /**
+     * Create a cursor over this list
+     *
+     * @return a cursor with no current node, whose first operation performs an unhinted search
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A finger into the list that remembers the last node it touched.
+     * <p>
+     * Every operation on the cursor runs through the hinted variant of the corresponding list
+     * method, using the cursor's current node as the hint, and then moves the cursor to the node
+     * it ended on. A sequence of operations whose keys stay close together (such as time-ordered
+     * or slowly drifting keys) therefore costs O(distance between consecutive keys) per operation
+     * rather than O(length), with no bookkeeping on the caller's side.
+     * <p>
+     * If the cursor's node is removed from the list by something other than the cursor, or handed
+     * to another list by {@link SortedList#mergeFrom(SortedList)}, the next operation falls back to
+     * an unhinted search.
+     */
+    public class Cursor {
+        private LinkedListNode<T> node;
+        /**
+         * The list's <tt>handovers</tt> when the cursor moved to <tt>node</tt>
+         */
+        private int handovers;
+
+        private Cursor() {
+            this.node = null;
+            this.handovers = SortedList.this.handovers;
+        }
+
+        /**
+         * @return the node the cursor is on, or <tt>Optional.empty()</tt> if it is on none
+         */
+        public Optional<LinkedListNode<T>> node() {
+            return valid() ? this.node.ref() : Optional.empty();
+        }
+
+        /**
+         * Find the node holding elem, or the node that would precede it, and move there
+         *
+         * @param elem the element to find
+         * @return as {@link SortedList#findRefBefore(Comparable, LinkedListNode)}
+         */
+        public Optional<LinkedListNode<T>> findRefBefore(T elem) {
+            Optional<LinkedListNode<T>> ret = valid()
+                    ? SortedList.this.findRefBefore(elem, this.node)
+                    : SortedList.this.findRefBefore(elem);
+            moveTo(ret);
+            return ret;
+        }
+
+        /**
+         * Find the node holding elem, moving the cursor to it (or next to where it would be)
+         *
+         * @param elem the element to find
+         * @return as {@link SortedList#findRef(Comparable, LinkedListNode)}
+         */
+        public Optional<LinkedListNode<T>> findRef(T elem) {
+            Optional<LinkedListNode<T>> before = findRefBefore(elem);
+            if (before.isPresent() && before.get().value.compareTo(elem) == 0) {
+                return before;
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Move the cursor to the node holding the greatest element less than or equal to elem,
+         * or to the first node if there is none
+         *
+         * @param elem the element to seek to
+         * @return whether the list contains <tt>elem</tt>
+         */
+        public boolean seek(T elem) {
+            return findRef(elem).isPresent();
+        }
+
+        /**
+         * Insert a value into the list and move the cursor to the node holding it
+         *
+         * @param elem the value to insert
+         * @return the node holding the inserted value
+         */
+        public LinkedListNode<T> insert(T elem) {
+            moveTo(valid() ? SortedList.this.insert(elem, this.node) : SortedList.this.insert(elem));
+            return this.node;
+        }
+
+        /**
+         * Remove one instance of the value the cursor is on
+         *
+         * @return the removed value
+         * @throws IllegalStateException if the cursor is not on a node
+         * <p>
+         * If that removes the node itself, the cursor moves to the preceding node, or to the
+         * following one if there is no preceding node.
+         */
+        public T remove() throws IllegalStateException {
+            if (!valid()) {
+                throw new IllegalStateException();
+            }
+            LinkedListNode<T> ref = this.node;
+            LinkedListNode<T> neighbour = ref.prev.orElse(ref.next.orElse(null));
+            T ret = SortedList.this.remove(ref);
+            if (ref.count == 0) {
+                moveTo(neighbour);
+            }
+            return ret;
+        }
+
+        /**
+         * Move the cursor to the next node
+         *
+         * @return whether the cursor moved; it does not move past the last node
+         */
+        public boolean next() {
+            if (!valid() || !this.node.next.isPresent()) {
+                return false;
+            }
+            moveTo(this.node.next.get());
+            return true;
+        }
+
+        /**
+         * Move the cursor to the previous node
+         *
+         * @return whether the cursor moved; it does not move past the first node
+         */
+        public boolean prev() {
+            if (!valid() || !this.node.prev.isPresent()) {
+                return false;
+            }
+            moveTo(this.node.prev.get());
+            return true;
+        }
+
+        private boolean valid() {
+            return this.node != null && this.node.count > 0
+                    && this.handovers == SortedList.this.handovers;
+        }
+
+        private void moveTo(Optional<LinkedListNode<T>> ref) {
+            moveTo(ref.orElse(headNode));
+        }
+
+        private void moveTo(LinkedListNode<T> node) {
+            this.node = node;
+            this.handovers = SortedList.this.handovers;
+        }
+    }
 }
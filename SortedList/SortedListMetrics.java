@@ -0,0 +1,81 @@
+package SortedList;
+
+/**
+ * Hooks through which a {@link SortedList} reports what its operations cost.
+ * <p>
+ * A list calls <tt>begin</tt> and <tt>end</tt> around every public operation, and
+ * <tt>compared</tt> and <tt>hopped</tt> for every <tt>compareTo</tt> call and every step from a
+ * node to a neighbour (or along a skip link) made on the way. Operations that call other
+ * operations (such as <tt>insert</tt> calling <tt>findRefBefore</tt>) are reported once, as the
+ * outermost operation.
+ * <p>
+ * Lists start out with {@link #DISABLED}, whose methods are empty and get inlined away by the JIT,
+ * so an uninstrumented list pays nothing for the hooks. Install a {@link RecordingMetrics} with
+ * {@link SortedList#setMetrics(SortedListMetrics)} to start collecting.
+ */
+public interface SortedListMetrics {
+    /**
+     * The operations a list reports
+     */
+    enum Operation {
+        FIND_REF_BEFORE, FIND_REF, GET_REF, RANK, COUNT_BETWEEN, RANGE, RANGE_NEXT, INSERT, INSERT_N,
+        INSERT_ALL, REMOVE, REMOVE_N, REMOVE_ALL, UPDATE, MERGE, UNION, INTERSECT, DIFFERENCE,
+        FROM_SORTED
+    }
+
+    /**
+     * Metrics that record nothing
+     */
+    SortedListMetrics DISABLED = new Disabled();
+
+    /**
+     * Called when an operation starts
+     *
+     * @return a token to pass to <tt>end</tt>
+     */
+    long begin();
+
+    /**
+     * Called for every <tt>compareTo</tt> call made by the current operation
+     */
+    void compared();
+
+    /**
+     * Called for every node-to-node step made by the current operation
+     */
+    void hopped();
+
+    /**
+     * Called when an operation finishes
+     *
+     * @param op     the operation
+     * @param hinted whether the caller passed a hint
+     * @param start  the token returned by the matching <tt>begin</tt>
+     */
+    void end(Operation op, boolean hinted, long start);
+
+    /**
+     * The implementation behind {@link #DISABLED}
+     */
+    final class Disabled implements SortedListMetrics {
+        private Disabled() {
+        }
+
+        @Override
+        public long begin() {
+            return 0;
+        }
+
+        @Override
+        public void compared() {
+        }
+
+        @Override
+        public void hopped() {
+        }
+
+        @Override
+        public void end(Operation op, boolean hinted, long start) {
+        }
+    }
+}
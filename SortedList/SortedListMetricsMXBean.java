@@ -0,0 +1,55 @@
+package SortedList;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link RecordingMetrics}.
+ * <p>
+ * Maps are keyed by operation name, with a <tt>_HINTED</tt> suffix for the hinted variants.
+ */
+public interface SortedListMetricsMXBean {
+    /**
+     * @return the number of <tt>compareTo</tt> calls made by all operations
+     */
+    long getComparisons();
+
+    /**
+     * @return the number of node-to-node steps made by all operations
+     */
+    long getHops();
+
+    /**
+     * @return the number of times each operation ran
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return the mean number of node-to-node steps per call of each operation
+     */
+    Map<String, Double> getMeanHops();
+
+    /**
+     * @return the median latency of each operation, in nanoseconds
+     */
+    Map<String, Long> getLatencyP50Nanos();
+
+    /**
+     * @return the 99th percentile latency of each operation, in nanoseconds
+     */
+    Map<String, Long> getLatencyP99Nanos();
+
+    /**
+     * @return the largest number of steps any hinted operation took, i.e. the worst hint seen
+     */
+    long getWorstHintHops();
+
+    /**
+     * @return the stack trace of the call that passed the worst hint, or an empty string
+     */
+    String getWorstHintCaller();
+
+    /**
+     * Discard everything recorded so far
+     */
+    void reset();
+}
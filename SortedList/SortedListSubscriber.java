@@ -0,0 +1,147 @@
+package SortedList;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A <tt>Flow.Subscriber</tt> that loads the items it receives into a {@link SortedList} in
+ * batches.
+ * <p>
+ * The subscriber requests <tt>batchSize</tt> items at a time and collects them in a buffer. Once
+ * a batch is complete, it is applied with {@link SortedList#insertAll(java.util.Collection)},
+ * which sorts and collapses the batch and merges it into the list in a single pass, and only then
+ * is the next batch requested. Publishing through a <tt>SubmissionPublisher</tt> therefore lets
+ * any number of producer threads feed the list without ever touching it: they only wait, in
+ * <tt>submit</tt>, when the publisher's buffer is full because the list has fallen behind.
+ * <p>
+ * Each batch is applied while holding the list's monitor, as in {@link ShardedSortedList}, so
+ * other threads can read the list safely by synchronizing on it. A last, partial batch is applied
+ * when the publisher completes or fails, after which <tt>completion</tt> completes.
+ * <p>
+ * If applying a batch throws (for instance because <tt>compareTo</tt> does), the exception is
+ * not thrown back at the publisher: the subscription is cancelled, <tt>completion</tt> completes
+ * exceptionally with it, and any later signal is ignored.
+ *
+ * @param <T> The type of value stored in the list
+ */
+public class SortedListSubscriber<T extends Comparable<T>> implements Flow.Subscriber<T> {
+    /**
+     * Default number of items requested and applied at a time
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final SortedList<T> list;
+    private final int batchSize;
+    private final ArrayList<T> batch;
+    private final CompletableFuture<SortedList<T>> completion;
+    private Flow.Subscription subscription;
+    /**
+     * Set once the subscriber has completed, failed or given up, after which signals are ignored
+     */
+    private boolean done;
+
+    /**
+     * Creates a subscriber loading items into a list in batches of the default size
+     *
+     * @param list the list to load
+     */
+    public SortedListSubscriber(SortedList<T> list) {
+        this(list, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a subscriber loading items into a list
+     *
+     * @param list      the list to load
+     * @param batchSize the number of items requested and applied at a time
+     * @throws IllegalArgumentException if <tt>batchSize</tt> < 1
+     */
+    public SortedListSubscriber(SortedList<T> list, int batchSize) throws IllegalArgumentException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.list = list;
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.completion = new CompletableFuture<>();
+    }
+
+    /**
+     * @return a future completed with the list once the publisher completes and every item has
+     * been applied, or completed exceptionally if the publisher fails
+     */
+    public CompletableFuture<SortedList<T>> completion() {
+        return this.completion;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(this.batchSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (this.done) {
+            return;
+        }
+        this.batch.add(item);
+        if (this.batch.size() == this.batchSize && flush()) {
+            this.subscription.request(this.batchSize);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (this.done) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            this.done = true;
+            this.completion.completeExceptionally(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (this.done) {
+            return;
+        }
+        if (flush()) {
+            this.done = true;
+            this.completion.complete(this.list);
+        }
+    }
+
+    /**
+     * Apply the buffered items to the list
+     *
+     * @return true if the items were applied, or false if applying them failed, in which case the
+     * subscription has been cancelled and <tt>completion</tt> completed exceptionally
+     */
+    private boolean flush() {
+        if (this.batch.isEmpty()) {
+            return true;
+        }
+        try {
+            synchronized (this.list) {
+                this.list.insertAll(this.batch);
+            }
+            this.batch.clear();
+            return true;
+        } catch (RuntimeException e) {
+            this.batch.clear();
+            this.done = true;
+            this.subscription.cancel();
+            this.completion.completeExceptionally(e);
+            return false;
+        }
+    }
+}
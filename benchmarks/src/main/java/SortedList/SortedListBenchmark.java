@@ -0,0 +1,225 @@
+package SortedList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each public {@link SortedList} operation.
+ * <p>
+ * Every benchmark works on a list of <tt>size</tt> elements spread over <tt>keys</tt> distinct
+ * values (either 20, like the d20 tally in Main, or all-distinct). The stored values are the even
+ * numbers <tt>0, 2, 4, ...</tt>; probes range over both even and odd numbers, so about half of
+ * them miss. Probes and indices follow one of three access patterns:
+ * <ul>
+ * <li><tt>random</tt>: uniformly random</li>
+ * <li><tt>sequential</tt>: increasing by one, wrapping around</li>
+ * <li><tt>drifting</tt>: a random walk with small steps</li>
+ * </ul>
+ * Hinted benchmarks pass the node touched by the previous operation as the hint, so they measure
+ * how well hints pay off for each pattern.
+ * <p>
+ * Operations that change the list are paired with the operation that undoes them (for instance
+ * <tt>insert</tt> with <tt>remove</tt> of the returned node, and <tt>update</tt> with an update
+ * back to the original value), so the list keeps its shape over an iteration. Run with
+ * <tt>-prof gc</tt> for allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedListBenchmark {
+    private static final int OPS = 1 << 12;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"20", "distinct"})
+    public String keys;
+
+    @Param({"random", "sequential", "drifting"})
+    public String pattern;
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private SortedList<Integer> list;
+    private Integer[] probes;
+    private int[] positions;
+    private int op;
+    private LinkedListNode<Integer> hint;
+
+    @Setup(Level.Trial)
+    public void setUpProbes() {
+        int cardinality = cardinality();
+        Random random = new Random(42);
+        int[] values = accessPattern(random, 2 * cardinality);
+        this.probes = new Integer[OPS];
+        for (int i = 0; i < OPS; i++) {
+            this.probes[i] = values[i];
+        }
+        this.positions = accessPattern(random, this.size);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpList() {
+        int cardinality = cardinality();
+        Integer[] sorted = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            sorted[i] = 2 * (int) ((long) i * cardinality / this.size);
+        }
+        this.list = SortedList.fromSorted(Arrays.asList(sorted).iterator(), this.indexed);
+        this.hint = this.list.headNode;
+        this.op = 0;
+    }
+
+    private int cardinality() {
+        return "distinct".equals(this.keys) ? this.size : Math.min(Integer.parseInt(this.keys), this.size);
+    }
+
+    private int[] accessPattern(Random random, int bound) {
+        int[] ret = new int[OPS];
+        int walk = random.nextInt(bound);
+        for (int i = 0; i < OPS; i++) {
+            switch (this.pattern) {
+                case "sequential":
+                    ret[i] = i % bound;
+                    break;
+                case "drifting":
+                    walk = Math.floorMod(walk + random.nextInt(17) - 8, bound);
+                    ret[i] = walk;
+                    break;
+                default:
+                    ret[i] = random.nextInt(bound);
+            }
+        }
+        return ret;
+    }
+
+    private Integer nextProbe() {
+        return this.probes[this.op++ & (OPS - 1)];
+    }
+
+    private int nextPosition() {
+        return this.positions[this.op++ & (OPS - 1)];
+    }
+
+    @Benchmark
+    public Optional<LinkedListNode<Integer>> findRefBefore() {
+        return this.list.findRefBefore(nextProbe());
+    }
+
+    @Benchmark
+    public Optional<LinkedListNode<Integer>> findRefBeforeHinted() {
+        Optional<LinkedListNode<Integer>> ret = this.list.findRefBefore(nextProbe(), this.hint);
+        this.hint = ret.orElse(this.hint);
+        return ret;
+    }
+
+    @Benchmark
+    public Optional<LinkedListNode<Integer>> findRef() {
+        return this.list.findRef(nextProbe());
+    }
+
+    @Benchmark
+    public Optional<LinkedListNode<Integer>> findRefHinted() {
+        Optional<LinkedListNode<Integer>> ret = this.list.findRef(nextProbe(), this.hint);
+        this.hint = ret.orElse(this.hint);
+        return ret;
+    }
+
+    @Benchmark
+    public LinkedListNode<Integer> getRef() {
+        return this.list.getRef(nextPosition());
+    }
+
+    @Benchmark
+    public Integer get() {
+        return this.list.get(nextPosition());
+    }
+
+    @Benchmark
+    public LinkedListNode<Integer> insertThenRemove() {
+        LinkedListNode<Integer> node = this.list.insert(nextProbe());
+        this.list.remove(node);
+        return node;
+    }
+
+    @Benchmark
+    public LinkedListNode<Integer> insertHintedThenRemove() {
+        LinkedListNode<Integer> node = this.list.insert(nextProbe(), this.hint);
+        this.list.remove(node);
+        if (node.count > 0) {
+            this.hint = node;
+        }
+        return node;
+    }
+
+    @Benchmark
+    public Integer removeThenReinsert() {
+        LinkedListNode<Integer> node = this.list.getRef(nextPosition());
+        LinkedListNode<Integer> neighbour = neighbour(node);
+        Integer value = this.list.remove(node);
+        this.list.insert(value, node.count > 0 ? node : neighbour);
+        return value;
+    }
+
+    @Benchmark
+    public Integer removeNThenReinsert() {
+        LinkedListNode<Integer> node = this.list.getRef(nextPosition());
+        return removeAndReinsert(node, Math.max(1, node.count / 2));
+    }
+
+    @Benchmark
+    public Integer removeAllThenReinsert() {
+        LinkedListNode<Integer> node = this.list.getRef(nextPosition());
+        return removeAndReinsert(node, -1);
+    }
+
+    private Integer removeAndReinsert(LinkedListNode<Integer> node, int n) {
+        LinkedListNode<Integer> neighbour = neighbour(node);
+        int removed = n < 0 ? node.count : n;
+        Integer value = n < 0 ? this.list.removeAll(node) : this.list.removeN(node, n);
+        LinkedListNode<Integer> at = node.count > 0 ? node : neighbour;
+        for (int i = 0; i < removed; i++) {
+            at = at == null ? this.list.insert(value) : this.list.insert(value, at);
+        }
+        return value;
+    }
+
+    private LinkedListNode<Integer> neighbour(LinkedListNode<Integer> node) {
+        return node.prev.orElse(node.next.orElse(null));
+    }
+
+    @Benchmark
+    public LinkedListNode<Integer> updateThenRestore() {
+        Integer value = this.hint.value;
+        LinkedListNode<Integer> moved = this.list.update(this.hint, nextProbe());
+        this.hint = this.list.update(moved, value);
+        return moved;
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer value : this.list) {
+            blackhole.consume(value);
+        }
+    }
+}
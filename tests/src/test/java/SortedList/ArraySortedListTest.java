@@ -0,0 +1,59 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Model-based tests of {@link ArraySortedList} against a <tt>TreeMap</tt>.
+ */
+class ArraySortedListTest {
+    @Test
+    void arrayListMatchesModel() {
+        Random random = new Random(1);
+        ArraySortedList<Integer> list = new ArraySortedList<>(4);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        int hint = ArraySortedList.NIL;
+        for (int op = 0; op < 5000; op++) {
+            int value = random.nextInt(150);
+            int found = list.findRef(value);
+            assertEquals(model.containsKey(value), found != ArraySortedList.NIL);
+            int choice = random.nextInt(4);
+            if (choice < 2 || found == ArraySortedList.NIL) {
+                hint = hint == ArraySortedList.NIL || list.findRef(list.value(hint)) != hint
+                        ? list.insert(value) : list.insert(value, hint);
+                Models.add(model, value, 1);
+            } else if (choice == 2) {
+                int n = list.count(found);
+                list.removeAll(found);
+                Models.remove(model, value, n);
+                if (found == hint) {
+                    hint = ArraySortedList.NIL;
+                }
+            } else {
+                int elem = random.nextInt(150);
+                boolean emptied = list.count(found) == 1;
+                int moved = list.update(found, elem);
+                assertEquals(elem, list.value(moved));
+                Models.remove(model, value, 1);
+                Models.add(model, elem, 1);
+                if (emptied && found == hint) {
+                    hint = ArraySortedList.NIL;
+                }
+            }
+            if (op % 250 == 0) {
+                List<Integer> expected = Models.expand(model);
+                assertEquals(expected, Models.toList(list));
+                assertEquals(expected.size(), list.length());
+                assertEquals(model.size(), list.nodes());
+                for (int i = 0; i < expected.size(); i += 5) {
+                    assertEquals(expected.get(i), list.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Model-based tests of {@link ChunkedSortedList}, with chunks small enough that runs keep moving
+ * between chunks, checking that handles keep following their values.
+ */
+class ChunkedSortedListTest {
+    @Test
+    void randomOperationsMatchModelAndHandlesFollowTheirValues() {
+        Random random = new Random(1);
+        ChunkedSortedList<Integer> list = new ChunkedSortedList<>(8);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        Map<Integer, ChunkedSortedList.Ref<Integer>> handles = new HashMap<>();
+
+        for (int op = 0; op < 20000; op++) {
+            int value = random.nextInt(400);
+            Optional<ChunkedSortedList.Ref<Integer>> found = list.findRef(value);
+            assertEquals(model.containsKey(value), found.isPresent());
+            if (found.isPresent() && handles.containsKey(value)) {
+                assertSame(handles.get(value), found.get());
+            }
+            int choice = random.nextInt(5);
+            if (choice < 2 || !found.isPresent()) {
+                ChunkedSortedList.Ref<Integer> hint = handles.get(random.nextInt(400));
+                ChunkedSortedList.Ref<Integer> ref = list.insert(value, hint);
+                assertEquals(value, ref.value);
+                handles.put(value, ref);
+                Models.add(model, value, 1);
+            } else if (choice == 2) {
+                list.remove(found.get());
+                Models.remove(model, value, 1);
+            } else if (choice == 3) {
+                int n = model.get(value);
+                assertEquals(n, list.count(found.get()));
+                list.removeAll(found.get());
+                assertEquals(0, list.count(found.get()));
+                assertThrows(IllegalArgumentException.class, () -> list.remove(found.get()));
+                Models.remove(model, value, n);
+            } else {
+                int elem = random.nextInt(400);
+                ChunkedSortedList.Ref<Integer> ref = list.update(found.get(), elem);
+                assertEquals(elem, ref.value);
+                handles.put(elem, ref);
+                Models.remove(model, value, 1);
+                Models.add(model, elem, 1);
+            }
+
+            if (op % 500 == 0) {
+                List<Integer> expected = Models.expand(model);
+                assertEquals(expected, Models.toList(list));
+                assertEquals(expected.size(), list.length());
+                for (int i = 0; i < expected.size(); i += 7) {
+                    assertEquals(expected.get(i), list.get(i));
+                }
+                // Handles to removed values report 0 and come back to life on re-insert
+                for (Map.Entry<Integer, ChunkedSortedList.Ref<Integer>> e : handles.entrySet()) {
+                    assertEquals((int) model.getOrDefault(e.getKey(), 0), list.count(e.getValue()));
+                }
+                Integer floor = model.floorKey(value);
+                assertEquals(floor, list.findRefBefore(value).map(ref -> ref.value).orElse(null));
+            }
+        }
+        assertTrue(list.chunks() > 1);
+    }
+
+    @Test
+    void handleSurvivesChunkMerges() {
+        ChunkedSortedList<Integer> list = new ChunkedSortedList<>(4);
+        for (int i = 0; i < 100; i++) {
+            list.insert(i);
+        }
+        ChunkedSortedList.Ref<Integer> last = list.findRef(99).get();
+        for (int i = 0; i < 99; i++) {
+            list.removeAll(list.findRef(i).get());
+        }
+        assertEquals(1, list.chunks());
+        assertEquals(1, list.count(last));
+        assertSame(last, list.getRef(0));
+        list.insert(50, last);
+        assertEquals(List.of(50, 99), Models.toList(list));
+    }
+
+    @Test
+    void rejectsTinyChunks() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedSortedList<Integer>(3));
+    }
+}
@@ -0,0 +1,96 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Model-based tests of {@link ConcurrentSortedList}, single-threaded against a <tt>TreeMap</tt>
+ * and then under concurrent inserts.
+ */
+class ConcurrentSortedListTest {
+    private static final int THREADS = 4;
+
+    @Test
+    void concurrentListMatchesModel() {
+        Random random = new Random(1);
+        ConcurrentSortedList<Integer> list = new ConcurrentSortedList<>();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        for (int op = 0; op < 5000; op++) {
+            int value = random.nextInt(200);
+            Optional<ConcurrentSortedList.Node<Integer>> found = list.findRef(value);
+            assertEquals(model.containsKey(value), found.isPresent());
+            int choice = random.nextInt(4);
+            if (choice < 2 || !found.isPresent()) {
+                list.insert(value);
+                Models.add(model, value, 1);
+            } else if (choice == 2) {
+                assertEquals(value, list.remove(found.get()));
+                Models.remove(model, value, 1);
+            } else {
+                int elem = random.nextInt(200);
+                assertEquals(elem, list.update(found.get(), elem).value);
+                Models.remove(model, value, 1);
+                Models.add(model, elem, 1);
+            }
+            if (op % 250 == 0) {
+                List<Integer> expected = Models.expand(model);
+                assertEquals(expected, Models.toList(list));
+                assertEquals(expected.size(), list.length());
+                for (int i = 0; i < expected.size(); i += 5) {
+                    assertEquals(expected.get(i), list.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void concurrentInsertsAreAllCounted() throws Exception {
+        ConcurrentSortedList<Integer> list = new ConcurrentSortedList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        list.insert(i % 100);
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(THREADS * 5000, list.length());
+        for (int v = 0; v < 100; v++) {
+            assertEquals(THREADS * 50, list.findRef(v).get().count());
+        }
+    }
+
+    @Test
+    void removeNRejectsCountsBelowOne() {
+        ConcurrentSortedList<Integer> list = new ConcurrentSortedList<>();
+        list.insert(5);
+        ConcurrentSortedList.Node<Integer> node = list.insert(5);
+        assertThrows(IllegalArgumentException.class, () -> list.removeN(node, 0));
+        assertThrows(IllegalArgumentException.class, () -> list.removeN(node, -1));
+        assertThrows(IllegalArgumentException.class, () -> list.removeN(node, 3));
+        assertEquals(2, node.count());
+        assertEquals(5, list.removeN(node, 2));
+        assertEquals(0, list.length());
+        assertNull(list.removeN(node, 1));
+    }
+}
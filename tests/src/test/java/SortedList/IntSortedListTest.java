@@ -0,0 +1,90 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Model-based tests of {@link IntSortedList} and {@link LongSortedList} against a <tt>TreeMap</tt>.
+ */
+class IntSortedListTest {
+    @Test
+    void intListMatchesModel() {
+        Random random = new Random(1);
+        IntSortedList list = new IntSortedList();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        IntListNode hint = null;
+        for (int op = 0; op < 5000; op++) {
+            int value = random.nextInt(150) - 50;
+            IntListNode found = list.findRef(value);
+            assertEquals(model.containsKey(value), found != null);
+            int choice = random.nextInt(5);
+            if (choice < 2 || found == null) {
+                hint = hint == null || hint.count == 0 ? list.insert(value) : list.insert(value, hint);
+                Models.add(model, value, 1);
+            } else if (choice == 2) {
+                list.remove(found);
+                Models.remove(model, value, 1);
+            } else if (choice == 3) {
+                int n = found.count;
+                list.removeAll(found);
+                Models.remove(model, value, n);
+            } else {
+                int elem = random.nextInt(150) - 50;
+                assertEquals(elem, list.update(found, elem).value);
+                Models.remove(model, value, 1);
+                Models.add(model, elem, 1);
+            }
+            if (op % 250 == 0) {
+                List<Integer> expected = Models.expand(model);
+                List<Integer> actual = new ArrayList<>();
+                list.iterator().forEachRemaining((int x) -> actual.add(x));
+                assertEquals(expected, actual);
+                assertEquals(expected.size(), list.length);
+                for (int i = 0; i < expected.size(); i += 5) {
+                    assertEquals(expected.get(i), list.get(i));
+                }
+                Integer floor = model.floorKey(value);
+                IntListNode before = list.findRefBefore(value);
+                assertEquals(floor, before == null ? null : before.value);
+            }
+        }
+    }
+
+    @Test
+    void longListMatchesModel() {
+        Random random = new Random(2);
+        LongSortedList list = new LongSortedList();
+        TreeMap<Long, Integer> model = new TreeMap<>();
+        for (int op = 0; op < 5000; op++) {
+            long value = (random.nextInt(150) - 50) * (1L << 40);
+            LongListNode found = list.findRef(value);
+            assertEquals(model.containsKey(value), found != null);
+            if (random.nextInt(3) < 2 || found == null) {
+                list.insert(value);
+                Models.add(model, value, 1);
+            } else {
+                list.remove(found);
+                Models.remove(model, value, 1);
+            }
+            if (op % 250 == 0) {
+                List<Long> expected = Models.expand(model);
+                List<Long> actual = new ArrayList<>();
+                list.iterator().forEachRemaining((long x) -> actual.add(x));
+                assertEquals(expected, actual);
+                assertEquals(expected.size(), list.length);
+            }
+        }
+        while (list.headNode != null) {
+            list.removeAll(list.headNode);
+        }
+        assertNull(list.lastNode);
+        assertEquals(0, list.length);
+    }
+}
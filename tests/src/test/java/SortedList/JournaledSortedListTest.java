@@ -0,0 +1,191 @@
+package SortedList;
+
+import SortedList.JournaledSortedList.FsyncPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovery tests of {@link JournaledSortedList}. A crash is simulated by copying the directory
+ * while the list is still open, which captures exactly what has been written to the files.
+ */
+class JournaledSortedListTest {
+    @TempDir
+    Path tmp;
+    Path dir;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        this.dir = Files.createDirectory(this.tmp.resolve("list"));
+    }
+
+    private JournaledSortedList<Integer> open(Path directory, long checkpointBytes) throws IOException {
+        return new JournaledSortedList<>(directory, KeyCodec.INTEGER, FsyncPolicy.NEVER, 256, checkpointBytes);
+    }
+
+    private static Path crashCopy(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Apply a random mutation to both the journaled list and the model
+     */
+    private static void mutate(Random random, JournaledSortedList<Integer> list, TreeMap<Integer, Integer> model)
+            throws IOException {
+        int value = random.nextInt(100);
+        Optional<LinkedListNode<Integer>> found = list.list().findRef(value);
+        int choice = random.nextInt(6);
+        if (choice < 2 || !found.isPresent()) {
+            list.insert(value);
+            Models.add(model, value, 1);
+        } else if (choice == 2) {
+            list.remove(found.get());
+            Models.remove(model, value, 1);
+        } else if (choice == 3) {
+            int n = 1 + random.nextInt(found.get().count);
+            list.removeN(found.get(), n);
+            Models.remove(model, value, n);
+        } else if (choice == 4) {
+            int n = found.get().count;
+            list.removeAll(found.get());
+            Models.remove(model, value, n);
+        } else {
+            int elem = random.nextInt(100);
+            list.update(found.get(), elem);
+            Models.remove(model, value, 1);
+            Models.add(model, elem, 1);
+        }
+    }
+
+    @Test
+    void reopenRecoversEveryCommittedMutation() throws IOException {
+        Random random = new Random(1);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        for (int session = 0; session < 5; session++) {
+            try (JournaledSortedList<Integer> list = open(this.dir, 2048)) {
+                assertEquals(Models.expand(model), Models.toList(list));
+                for (int op = 0; op < 1000; op++) {
+                    mutate(random, list, model);
+                    if (op % 50 == 0) {
+                        list.commit();
+                    }
+                }
+            }
+        }
+        try (JournaledSortedList<Integer> list = open(this.dir, 2048)) {
+            SortedListTest.assertMatches(model, list.list());
+        }
+        try (Stream<Path> files = Files.list(this.dir)) {
+            assertEquals(2, files.count(), "older generations should have been deleted");
+        }
+    }
+
+    @Test
+    void crashKeepsCommittedFramesAndDropsTheRest() throws IOException {
+        Random random = new Random(2);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        Path torn;
+        Path committedOnly;
+        long committedSize;
+        try (JournaledSortedList<Integer> list = open(this.dir, Long.MAX_VALUE)) {
+            for (int op = 0; op < 500; op++) {
+                mutate(random, list, model);
+            }
+            list.commit();
+            committedSize = Files.size(this.dir.resolve("wal-0.log"));
+
+            TreeMap<Integer, Integer> later = new TreeMap<>(model);
+            for (int op = 0; op < 20; op++) {
+                mutate(random, list, later);
+            }
+            committedOnly = crashCopy(this.dir, this.tmp.resolve("uncommitted"));
+            list.commit();
+            torn = crashCopy(this.dir, this.tmp.resolve("torn"));
+        }
+
+        try (JournaledSortedList<Integer> list = open(committedOnly, Long.MAX_VALUE)) {
+            assertEquals(Models.expand(model), Models.toList(list));
+        }
+
+        Path log = torn.resolve("wal-0.log");
+        long size = Files.size(log);
+        assertTrue(size > committedSize);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(committedSize + (size - committedSize) / 2);
+        }
+        try (JournaledSortedList<Integer> list = open(torn, Long.MAX_VALUE)) {
+            assertEquals(Models.expand(model), Models.toList(list));
+            assertEquals(committedSize, Files.size(log), "the torn frame should have been cut off");
+            list.insert(1000);
+        }
+        Models.add(model, 1000, 1);
+        try (JournaledSortedList<Integer> list = open(torn, Long.MAX_VALUE)) {
+            assertEquals(Models.expand(model), Models.toList(list));
+        }
+    }
+
+    @Test
+    void crashDuringCheckpointRecoversNewestGeneration() throws IOException {
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        Path stale = this.tmp.resolve("stale");
+        try (JournaledSortedList<Integer> list = open(this.dir, Long.MAX_VALUE)) {
+            for (int i = 0; i < 100; i++) {
+                list.insert(i % 30);
+                Models.add(model, i % 30, 1);
+            }
+            list.checkpoint();
+            crashCopy(this.dir, stale);
+            list.insert(500);
+            Models.add(model, 500, 1);
+            list.checkpoint();
+        }
+        // Leave generation 1 behind, as if the crash came before it was deleted
+        try (Stream<Path> files = Files.list(stale)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, this.dir.resolve(file.getFileName()));
+            }
+        }
+        try (JournaledSortedList<Integer> list = open(this.dir, Long.MAX_VALUE)) {
+            assertEquals(Models.expand(model), Models.toList(list));
+        }
+        assertTrue(Files.exists(this.dir.resolve("checkpoint-2.slst")));
+        assertTrue(Files.notExists(this.dir.resolve("checkpoint-1.slst")));
+    }
+
+    @Test
+    void failedMutationLeavesNoRecord() throws IOException {
+        try (JournaledSortedList<String> list = new JournaledSortedList<>(this.dir, KeyCodec.STRING,
+                FsyncPolicy.EVERY_COMMIT)) {
+            list.insert("a");
+            assertThrows(NullPointerException.class, () -> list.insert(null));
+            LinkedListNode<String> a = list.list().findRef("a").get();
+            assertThrows(NullPointerException.class, () -> list.update(a, null));
+            list.commit();
+        }
+        try (JournaledSortedList<String> list = new JournaledSortedList<>(this.dir, KeyCodec.STRING,
+                FsyncPolicy.EVERY_COMMIT)) {
+            assertEquals(List.of("a"), Models.toList(list));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package SortedList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Helpers for checking a list against a <tt>TreeMap</tt> from each value to its count.
+ */
+final class Models {
+    private Models() {
+    }
+
+    /**
+     * Add n instances of a value to a model
+     */
+    static <T> void add(TreeMap<T, Integer> model, T value, int n) {
+        model.merge(value, n, Integer::sum);
+    }
+
+    /**
+     * Remove n instances of a value from a model
+     */
+    static <T> void remove(TreeMap<T, Integer> model, T value, int n) {
+        if (model.merge(value, -n, Integer::sum) == 0) {
+            model.remove(value);
+        }
+    }
+
+    /**
+     * @return every element of a model, in sorted order and with duplicates repeated
+     */
+    static <T> List<T> expand(TreeMap<T, Integer> model) {
+        List<T> ret = new ArrayList<>();
+        for (Map.Entry<T, Integer> e : model.entrySet()) {
+            for (int i = 0; i < e.getValue(); i++) {
+                ret.add(e.getKey());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of elements of a model
+     */
+    static <T> int length(TreeMap<T, Integer> model) {
+        int ret = 0;
+        for (int n : model.values()) {
+            ret += n;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of elements of a model strictly less than <tt>elem</tt>
+     */
+    static <T> int rank(TreeMap<T, Integer> model, T elem) {
+        int ret = 0;
+        for (int n : model.headMap(elem, false).values()) {
+            ret += n;
+        }
+        return ret;
+    }
+
+    /**
+     * @return the elements of an iterable, in iteration order
+     */
+    static <T> List<T> toList(Iterable<T> elems) {
+        List<T> ret = new ArrayList<>();
+        elems.forEach(ret::add);
+        return ret;
+    }
+
+    /**
+     * A value whose <tt>compareTo</tt> throws whenever either side is {@link #POISON}
+     */
+    static final class Touchy implements Comparable<Touchy> {
+        static final int POISON = -13;
+        final int value;
+
+        Touchy(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(Touchy o) {
+            if (this.value == POISON || o.value == POISON) {
+                throw new ClassCastException("poisoned comparison");
+            }
+            return Integer.compare(this.value, o.value);
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(this.value);
+        }
+    }
+}
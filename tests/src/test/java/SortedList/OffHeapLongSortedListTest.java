@@ -0,0 +1,86 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Model-based tests of {@link OffHeapLongSortedList} against a <tt>TreeMap</tt>, and of how it
+ * holds on to its off-heap segments.
+ */
+class OffHeapLongSortedListTest {
+    private static final long SEGMENT_BYTES = OffHeapLongSortedList.SEGMENT_SLOTS * 24L;
+
+    @Test
+    void offHeapListMatchesModel() {
+        Random random = new Random(2);
+        OffHeapLongSortedList list = new OffHeapLongSortedList();
+        TreeMap<Long, Integer> model = new TreeMap<>();
+        for (int op = 0; op < 5000; op++) {
+            long value = random.nextInt(150) - 50;
+            int found = list.findRef(value);
+            assertEquals(model.containsKey(value), found != OffHeapLongSortedList.NIL);
+            int choice = random.nextInt(4);
+            if (choice < 2 || found == OffHeapLongSortedList.NIL) {
+                list.insert(value);
+                Models.add(model, value, 1);
+            } else if (choice == 2) {
+                int n = list.count(found);
+                list.removeAll(found);
+                Models.remove(model, value, n);
+            } else {
+                long elem = random.nextInt(150) - 50;
+                assertEquals(elem, list.value(list.update(found, elem)));
+                Models.remove(model, value, 1);
+                Models.add(model, elem, 1);
+            }
+            if (op % 250 == 0) {
+                List<Long> expected = Models.expand(model);
+                List<Long> actual = new ArrayList<>();
+                list.iterator().forEachRemaining((long x) -> actual.add(x));
+                assertEquals(expected, actual);
+                assertEquals(expected.size(), list.length());
+                assertEquals(model.size(), list.nodes());
+            }
+        }
+    }
+
+    @Test
+    void emptyListKeepsOnlyItsFirstSegment() {
+        OffHeapLongSortedList list = new OffHeapLongSortedList();
+        assertEquals(0, list.offHeapBytes());
+        fill(list, OffHeapLongSortedList.SEGMENT_SLOTS + 10);
+        assertEquals(2 * SEGMENT_BYTES, list.offHeapBytes());
+        empty(list);
+        assertEquals(SEGMENT_BYTES, list.offHeapBytes());
+
+        for (int cycle = 0; cycle < 100; cycle++) {
+            fill(list, 1000);
+            assertEquals(1000, list.nodes());
+            assertEquals(SEGMENT_BYTES, list.offHeapBytes());
+            empty(list);
+            assertEquals(SEGMENT_BYTES, list.offHeapBytes());
+        }
+        list.insert(5);
+        assertEquals(List.of(5L), Models.toList(list));
+    }
+
+    private static void fill(OffHeapLongSortedList list, int n) {
+        int ref = list.insert(0);
+        for (int i = 1; i < n; i++) {
+            ref = list.insert(i, ref);
+        }
+    }
+
+    private static void empty(OffHeapLongSortedList list) {
+        while (list.headNode() != OffHeapLongSortedList.NIL) {
+            list.removeAll(list.headNode());
+        }
+        assertEquals(0, list.length());
+    }
+}
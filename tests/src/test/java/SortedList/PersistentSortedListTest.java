@@ -0,0 +1,105 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Model-based tests of {@link PersistentSortedList}, checking that every snapshot keeps the
+ * version it was taken of.
+ */
+class PersistentSortedListTest {
+    @Test
+    void randomOperationsMatchModelAndSnapshotsStayFrozen() {
+        Random random = new Random(1);
+        PersistentSortedList<Integer> list = new PersistentSortedList<>();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        List<PersistentSortedList.Snapshot<Integer>> snapshots = new ArrayList<>();
+        List<List<Integer>> versions = new ArrayList<>();
+
+        for (int op = 0; op < 5000; op++) {
+            int value = random.nextInt(300);
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    list.insert(value);
+                    Models.add(model, value, 1);
+                    break;
+                case 2:
+                    assertEquals(model.containsKey(value), list.remove(value));
+                    if (model.containsKey(value)) {
+                        Models.remove(model, value, 1);
+                    }
+                    break;
+                case 3:
+                    int n = model.getOrDefault(value, 0);
+                    assertEquals(n, list.removeAll(value));
+                    if (n > 0) {
+                        Models.remove(model, value, n);
+                    }
+                    break;
+                default:
+                    int elem = random.nextInt(300);
+                    if (model.containsKey(value)) {
+                        list.update(value, elem);
+                        Models.remove(model, value, 1);
+                        Models.add(model, elem, 1);
+                    } else {
+                        assertThrows(NoSuchElementException.class, () -> list.update(value, elem));
+                    }
+            }
+            if (op % 500 == 0) {
+                snapshots.add(list.snapshot());
+                versions.add(Models.expand(model));
+            }
+            if (op % 250 == 0) {
+                List<Integer> expected = Models.expand(model);
+                assertEquals(expected, Models.toList(list));
+                assertEquals(expected.size(), list.length());
+                for (int i = 0; i < expected.size(); i += 7) {
+                    assertEquals(expected.get(i), list.get(i));
+                }
+                for (int probe = 0; probe < 300; probe += 13) {
+                    assertEquals(Models.rank(model, probe), list.rank(probe));
+                    assertEquals((int) model.getOrDefault(probe, 0), list.count(probe));
+                }
+            }
+        }
+
+        for (int i = 0; i < snapshots.size(); i++) {
+            PersistentSortedList.Snapshot<Integer> snapshot = snapshots.get(i);
+            List<Integer> expected = versions.get(i);
+            assertEquals(expected, Models.toList(snapshot));
+            assertEquals(expected.size(), snapshot.length());
+            for (int idx = 0; idx < expected.size(); idx += 11) {
+                assertEquals(expected.get(idx), snapshot.get(idx));
+            }
+        }
+    }
+
+    @Test
+    void copyOfMatchesSource() {
+        SortedList<Integer> source = new SortedList<>();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(100);
+            source.insert(value);
+            Models.add(model, value, 1);
+        }
+        PersistentSortedList<Integer> copy = PersistentSortedList.copyOf(source);
+        assertEquals(Models.expand(model), Models.toList(copy));
+        copy.insertN(-1, 3);
+        assertFalse(Models.toList(source).contains(-1));
+        assertEquals(3, copy.count(-1));
+        assertThrows(IllegalArgumentException.class, () -> copy.insertN(5, 0));
+    }
+}
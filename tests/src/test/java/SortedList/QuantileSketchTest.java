@@ -0,0 +1,78 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the error and size bounds of {@link QuantileSketch} against the exact sorted samples.
+ */
+class QuantileSketchTest {
+    private static final double EPSILON = 0.01;
+
+    @Test
+    void ranksStayWithinEpsilon() {
+        Random random = new Random(1);
+        QuantileSketch<Integer> sketch = new QuantileSketch<>(EPSILON);
+        List<Integer> samples = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            int sample = (int) (random.nextGaussian() * 1000);
+            sketch.add(sample);
+            samples.add(sample);
+            assertTrue(sketch.nodes() <= 8 / EPSILON + 4);
+        }
+        assertEquals(samples.size(), sketch.length());
+        assertWithinEpsilon(samples, sketch, EPSILON);
+    }
+
+    @Test
+    void mergedRanksStayWithinTwiceEpsilon() {
+        Random random = new Random(2);
+        QuantileSketch<Integer> a = new QuantileSketch<>(EPSILON);
+        QuantileSketch<Integer> b = new QuantileSketch<>(EPSILON);
+        List<Integer> samples = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(10000);
+            int y = 5000 + random.nextInt(10000);
+            a.add(x);
+            b.add(y);
+            samples.add(x);
+            samples.add(y);
+        }
+        a.mergeFrom(b);
+        assertTrue(a.nodes() <= 8 / EPSILON + 4);
+        assertEquals(0, b.length());
+        assertEquals(samples.size(), a.length());
+        assertWithinEpsilon(samples, a, 2 * EPSILON);
+    }
+
+    private static void assertWithinEpsilon(List<Integer> samples, QuantileSketch<Integer> sketch, double epsilon) {
+        Collections.sort(samples);
+        int n = samples.size();
+        double slack = epsilon * n;
+        for (int probe = samples.get(0); probe <= samples.get(n - 1); probe += 97) {
+            int exact = lowerBound(samples, probe);
+            assertTrue(Math.abs(sketch.rank(probe) - exact) <= slack, "rank of " + probe);
+        }
+        for (double q = 0.01; q < 1; q += 0.01) {
+            int idx = (int) Math.ceil(q * n) - 1;
+            int value = sketch.quantile(q);
+            assertTrue(lowerBound(samples, value) <= idx + slack
+                    && lowerBound(samples, value + 1) >= idx - slack, "quantile " + q);
+        }
+    }
+
+    /**
+     * @return the number of samples less than value
+     */
+    private static int lowerBound(List<Integer> sorted, int value) {
+        int idx = Collections.binarySearch(sorted, value, (x, y) -> x < y ? -1 : 1);
+        return -idx - 1;
+    }
+}
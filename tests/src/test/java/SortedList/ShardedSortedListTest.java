@@ -0,0 +1,122 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of {@link ShardedSortedList}: routing values to their shard, indexing across shard
+ * boundaries, and loading the shards from several threads at once.
+ */
+class ShardedSortedListTest {
+    private static final int THREADS = 4;
+
+    @Test
+    void valuesGoToTheShardOwningTheirRange() {
+        ShardedSortedList<Integer> list = new ShardedSortedList<>(new Integer[]{100, 200, 300});
+        assertEquals(4, list.shards());
+        assertEquals(0, list.shardOf(Integer.MIN_VALUE));
+        assertEquals(0, list.shardOf(99));
+        assertEquals(1, list.shardOf(100));
+        assertEquals(1, list.shardOf(199));
+        assertEquals(2, list.shardOf(200));
+        assertEquals(3, list.shardOf(300));
+        assertEquals(3, list.shardOf(Integer.MAX_VALUE));
+
+        for (int v : new int[]{350, 5, 100, 250, 199, 300, 99}) {
+            list.insert(v);
+        }
+        assertEquals(List.of(5, 99), Models.toList(list.shard(0)));
+        assertEquals(List.of(100, 199), Models.toList(list.shard(1)));
+        assertEquals(List.of(250), Models.toList(list.shard(2)));
+        assertEquals(List.of(300, 350), Models.toList(list.shard(3)));
+        assertEquals(250, list.findRef(250).get().value);
+        assertEquals(Optional.empty(), list.findRef(251));
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedSortedList<>(new Integer[]{1, 1}));
+    }
+
+    @Test
+    void getCrossesShardBoundaries() {
+        ShardedSortedList<Integer> list = new ShardedSortedList<>(new Integer[]{10, 20, 30, 40}, true);
+        // Shards 1 and 3 stay empty
+        list.insertAll(List.of(31, 5, 5, 35, 9, 45, 31));
+        List<Integer> expected = List.of(5, 5, 9, 31, 31, 35, 45);
+        assertEquals(expected, Models.toList(list));
+        assertEquals(expected.size(), list.length());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(expected.size()));
+
+        ShardedSortedList<Integer> empty = new ShardedSortedList<>(new Integer[]{10});
+        assertEquals(List.of(), Models.toList(empty));
+        assertThrows(IndexOutOfBoundsException.class, () -> empty.get(0));
+    }
+
+    @Test
+    void parallelInsertsMatchModel() throws Exception {
+        ShardedSortedList<Integer> list = new ShardedSortedList<>(new Integer[]{100, 200, 300}, true);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Random random = new Random(t);
+                List<Integer> values = new ArrayList<>();
+                for (int i = 0; i < 2000; i++) {
+                    values.add(random.nextInt(400));
+                }
+                values.forEach(v -> Models.add(model, v, 1));
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < values.size(); i += 2) {
+                        list.insert(values.get(i));
+                    }
+                    list.insertAll(oddPositions(values));
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        List<Integer> expected = Models.expand(model);
+        assertEquals(expected, Models.toList(list));
+        assertEquals(expected.size(), list.length());
+        for (int i = 0; i < expected.size(); i += 11) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+
+        Random random = new Random(9);
+        for (int op = 0; op < 1000; op++) {
+            int value = random.nextInt(400);
+            Optional<LinkedListNode<Integer>> found = list.findRef(value);
+            assertEquals(model.containsKey(value), found.isPresent());
+            if (found.isPresent()) {
+                list.remove(found.get());
+                Models.remove(model, value, 1);
+            }
+        }
+        assertEquals(Models.expand(model), Models.toList(list));
+    }
+
+    private static List<Integer> oddPositions(List<Integer> values) {
+        List<Integer> ret = new ArrayList<>();
+        for (int i = 1; i < values.size(); i += 2) {
+            ret.add(values.get(i));
+        }
+        return ret;
+    }
+}
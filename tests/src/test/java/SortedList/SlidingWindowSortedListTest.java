@@ -0,0 +1,54 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link SlidingWindowSortedList} against a sorted copy of the samples in the window.
+ */
+class SlidingWindowSortedListTest {
+    @Test
+    void percentilesMatchLastSamples() {
+        Random random = new Random(1);
+        int capacity = 100;
+        SlidingWindowSortedList<Integer> window = new SlidingWindowSortedList<>(capacity);
+        ArrayDeque<Integer> recent = new ArrayDeque<>();
+        for (int i = 0; i < 5000; i++) {
+            int sample = random.nextInt(1000);
+            window.add(sample);
+            recent.addLast(sample);
+            if (recent.size() > capacity) {
+                recent.removeFirst();
+            }
+            List<Integer> sorted = new ArrayList<>(recent);
+            Collections.sort(sorted);
+            assertEquals(sorted.size(), window.size());
+            assertEquals(sorted.get((sorted.size() - 1) / 2), window.median());
+            assertEquals(sorted.get((int) Math.ceil(0.99 * sorted.size()) - 1), window.percentile(0.99));
+            if (i % 100 == 0) {
+                assertEquals(sorted, Models.toList(window));
+                long between = sorted.stream().filter(s -> s >= 250 && s <= 750).count();
+                assertEquals(between, window.countBetween(250, 750));
+            }
+        }
+    }
+
+    @Test
+    void oldSamplesExpire() {
+        SlidingWindowSortedList<Integer> window = new SlidingWindowSortedList<>(100, 10);
+        for (int t = 0; t < 50; t++) {
+            window.add(t, t);
+        }
+        assertEquals(11, window.size());
+        assertEquals(List.of(39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49), Models.toList(window));
+        window.expire(100);
+        assertEquals(0, window.size());
+    }
+}
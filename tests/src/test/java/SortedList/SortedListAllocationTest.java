@@ -0,0 +1,59 @@
+package SortedList;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the insert, remove and find hot path of {@link SortedList} allocates nothing once
+ * the nodes it touches exist.
+ */
+class SortedListAllocationTest {
+    private static final int ROUNDS = 100000;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void hotPathDoesNotAllocate(boolean indexed) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        SortedList<Integer> list = new SortedList<>(indexed);
+        Integer[] keys = new Integer[200];
+        Integer[] gaps = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 2 * i;
+            gaps[i] = 2 * i + 1;
+            list.insert(keys[i]);
+        }
+        // Warm up, so that the measured rounds run compiled code
+        churn(list, keys, gaps);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        churn(list, keys, gaps);
+        long bytes = threads.getThreadAllocatedBytes(thread) - before;
+        assertTrue(bytes < ROUNDS, bytes + " bytes allocated over " + ROUNDS + " rounds");
+    }
+
+    /**
+     * Insert and remove existing values, hinted and unhinted, and look up present and absent
+     * values; every boxed value is made up front
+     */
+    private static void churn(SortedList<Integer> list, Integer[] keys, Integer[] gaps) {
+        LinkedListNode<Integer> hint = list.headNode;
+        for (int i = 0; i < ROUNDS; i++) {
+            Integer key = keys[i % keys.length];
+            list.remove(list.insert(key));
+            hint = list.insert(keys[(i * 7) % keys.length], hint);
+            list.remove(hint);
+            list.findRef(key);
+            list.findRefBefore(gaps[i % gaps.length]);
+        }
+    }
+}
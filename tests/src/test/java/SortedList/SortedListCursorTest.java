@@ -0,0 +1,149 @@
+package SortedList;
+
+import SortedList.SortedListMetrics.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link SortedList.Cursor}: moving it around, operating through it, and what becomes of
+ * it when its node dies.
+ */
+class SortedListCursorTest {
+    private static SortedList<Integer> listOf(Integer... values) {
+        SortedList<Integer> list = new SortedList<>();
+        list.insertAll(List.of(values));
+        return list;
+    }
+
+    private static Integer at(SortedList<Integer>.Cursor cursor) {
+        return cursor.node().map(n -> n.value).orElse(null);
+    }
+
+    @Test
+    void seekNextAndPrev() {
+        SortedList<Integer> list = listOf(10, 20, 20, 30);
+        SortedList<Integer>.Cursor cursor = list.cursor();
+        assertFalse(cursor.node().isPresent());
+        assertFalse(cursor.next());
+
+        assertTrue(cursor.seek(20));
+        assertEquals(20, at(cursor));
+        assertTrue(cursor.next());
+        assertEquals(30, at(cursor));
+        assertFalse(cursor.next());
+        assertEquals(30, at(cursor));
+        assertTrue(cursor.prev());
+        assertTrue(cursor.prev());
+        assertEquals(10, at(cursor));
+        assertFalse(cursor.prev());
+
+        assertFalse(cursor.seek(25));
+        assertEquals(20, at(cursor));
+        assertFalse(cursor.seek(5));
+        assertEquals(10, at(cursor));
+        assertEquals(Optional.empty(), cursor.findRef(35));
+        assertEquals(30, at(cursor));
+        assertEquals(20, cursor.findRefBefore(29).get().value);
+    }
+
+    @Test
+    void operationsThroughCursorMatchModelAndAreHinted() {
+        Random random = new Random(1);
+        SortedList<Integer> list = new SortedList<>();
+        RecordingMetrics metrics = new RecordingMetrics();
+        list.setMetrics(metrics);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        SortedList<Integer>.Cursor cursor = list.cursor();
+        int value = 1000;
+        for (int op = 0; op < 5000; op++) {
+            value += random.nextInt(21) - 10;
+            if (random.nextInt(3) > 0 || model.isEmpty()) {
+                assertEquals(value, cursor.insert(value).value);
+                Models.add(model, value, 1);
+            } else {
+                Integer removed = cursor.remove();
+                Models.remove(model, removed, 1);
+            }
+        }
+        SortedListTest.assertMatches(model, list);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        // Only the inserts made while the list was empty, with no node to start from, are unhinted
+        assertTrue(snapshot.count(Operation.INSERT, false) < 10);
+        assertTrue(snapshot.count(Operation.INSERT, true) > 3000);
+        assertTrue(snapshot.meanHops(Operation.INSERT, true) < 20);
+    }
+
+    @Test
+    void removeMovesToNeighbourWhenNodeDies() {
+        SortedList<Integer> list = listOf(10, 20, 20, 30);
+        SortedList<Integer>.Cursor cursor = list.cursor();
+        cursor.seek(20);
+        assertEquals(20, cursor.remove());
+        assertEquals(20, at(cursor));
+        assertEquals(20, cursor.remove());
+        assertEquals(10, at(cursor));
+        assertEquals(10, cursor.remove());
+        assertEquals(30, at(cursor));
+        assertEquals(30, cursor.remove());
+        assertFalse(cursor.node().isPresent());
+        assertThrows(IllegalStateException.class, cursor::remove);
+        assertEquals(0, list.length);
+        assertEquals(40, cursor.insert(40).value);
+        assertEquals(List.of(40), Models.toList(list));
+    }
+
+    @Test
+    void nodeRemovedBehindCursorFallsBackToUnhintedSearch() {
+        SortedList<Integer> list = listOf(10, 20, 30);
+        RecordingMetrics metrics = new RecordingMetrics();
+        list.setMetrics(metrics);
+        SortedList<Integer>.Cursor cursor = list.cursor();
+        cursor.seek(20);
+        LinkedListNode<Integer> twenty = cursor.node().get();
+
+        list.removeAll(twenty);
+        assertFalse(cursor.node().isPresent());
+        assertThrows(IllegalStateException.class, cursor::remove);
+        assertFalse(cursor.next());
+        assertFalse(cursor.prev());
+
+        // A new node for the same value must not bring the cursor back to life
+        LinkedListNode<Integer> again = list.insert(20);
+        assertFalse(cursor.node().isPresent());
+
+        long unhinted = metrics.snapshot().count(Operation.INSERT, false);
+        assertEquals(25, cursor.insert(25).value);
+        assertEquals(unhinted + 1, metrics.snapshot().count(Operation.INSERT, false));
+        assertEquals(0, metrics.snapshot().count(Operation.INSERT, true));
+        assertEquals(List.of(10, 20, 25, 30), Models.toList(list));
+        assertTrue(cursor.prev());
+        assertSame(again, cursor.node().get());
+    }
+
+    @Test
+    void cursorOfMergedAwayListForgetsItsNode() {
+        SortedList<Integer> into = listOf(10, 30);
+        SortedList<Integer> from = listOf(20);
+        SortedList<Integer>.Cursor cursor = from.cursor();
+        cursor.seek(20);
+        LinkedListNode<Integer> twenty = cursor.node().get();
+
+        into.mergeFrom(from);
+        assertTrue(twenty.count > 0);
+        assertFalse(cursor.node().isPresent());
+        assertEquals(25, cursor.insert(25).value);
+        assertEquals(List.of(25), Models.toList(from));
+        assertEquals(List.of(10, 20, 30), Models.toList(into));
+    }
+}
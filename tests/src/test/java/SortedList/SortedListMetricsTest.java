@@ -0,0 +1,135 @@
+package SortedList;
+
+import SortedList.SortedListMetrics.Operation;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of what a {@link SortedList} reports to {@link RecordingMetrics}, and of the JMX view of
+ * the metrics.
+ */
+class SortedListMetricsTest {
+    private static SortedList<Integer> evens(int n, RecordingMetrics metrics) {
+        SortedList<Integer> list = new SortedList<>();
+        LinkedListNode<Integer> last = list.insert(0);
+        for (int i = 1; i < n; i++) {
+            last = list.insert(2 * i, last);
+        }
+        list.setMetrics(metrics);
+        return list;
+    }
+
+    @Test
+    void hintedInsertsTakeFewerHops() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        SortedList<Integer> list = evens(2000, metrics);
+        LinkedListNode<Integer> hint = list.findRef(3000).get();
+        metrics.reset();
+
+        for (int i = 0; i < 100; i++) {
+            list.insert(3001 + 2 * (i % 10));
+            hint = list.insert(3001 + 2 * (i % 10), hint);
+        }
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(100, snapshot.count(Operation.INSERT, false));
+        assertEquals(100, snapshot.count(Operation.INSERT, true));
+        assertTrue(snapshot.meanHops(Operation.INSERT, false) > 1000);
+        assertTrue(snapshot.meanHops(Operation.INSERT, true) < 20);
+        assertTrue(snapshot.hopPercentile(Operation.INSERT, true, 1)
+                < snapshot.hopPercentile(Operation.INSERT, false, 0.5));
+        assertTrue(snapshot.comparisons(Operation.INSERT, true)
+                < snapshot.comparisons(Operation.INSERT, false));
+    }
+
+    @Test
+    void worstHintAndItsCallerAreCaptured() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        SortedList<Integer> list = evens(1000, metrics);
+        LinkedListNode<Integer> head = list.headNode;
+        list.insert(3, head);
+        long small = metrics.snapshot().worstHintHops();
+
+        insertWithFarHint(list, head);
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertTrue(snapshot.worstHintHops() > 900);
+        assertTrue(snapshot.worstHintHops() > small);
+        assertTrue(snapshot.worstHintCaller().contains("insertWithFarHint"), snapshot.worstHintCaller());
+
+        list.insert(5, head);
+        assertEquals(snapshot.worstHintHops(), metrics.snapshot().worstHintHops());
+        assertTrue(metrics.snapshot().worstHintCaller().contains("insertWithFarHint"));
+    }
+
+    private static void insertWithFarHint(SortedList<Integer> list, LinkedListNode<Integer> hint) {
+        list.insert(1995, hint);
+    }
+
+    @Test
+    void bulkOperationsAreReportedOnce() {
+        RecordingMetrics metrics = new RecordingMetrics();
+        SortedList<Integer> list = evens(100, metrics);
+        SortedList<Integer> other = SortedList.fromSorted(List.of(1, 3, 3, 50).iterator(), false, metrics);
+
+        list.insertAll(List.of(7, 5, 5, 300));
+        list.insertN(9, 3);
+        list.insertN(11, 2, list.findRef(9).get());
+        list.union(other);
+        list.intersect(other);
+        list.difference(other);
+        list.mergeFrom(other);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        for (Operation op : EnumSet.of(Operation.FROM_SORTED, Operation.INSERT_ALL, Operation.INSERT_N,
+                Operation.UNION, Operation.INTERSECT, Operation.DIFFERENCE, Operation.MERGE)) {
+            assertEquals(1, snapshot.count(op, false), op.name());
+            assertTrue(snapshot.comparisons(op, false) > 0, op.name());
+        }
+        assertEquals(1, snapshot.count(Operation.INSERT_N, true));
+        for (Operation op : EnumSet.of(Operation.UNION, Operation.INTERSECT, Operation.DIFFERENCE,
+                Operation.MERGE, Operation.INSERT_ALL)) {
+            assertTrue(snapshot.hops(op, false) > 0, op.name());
+        }
+        // Nested operations are reported as the outermost one only
+        assertEquals(0, snapshot.count(Operation.INSERT, false));
+        assertEquals(0, snapshot.count(Operation.INSERT, true));
+        assertEquals(1, snapshot.count(Operation.FIND_REF, false));
+    }
+
+    @Test
+    void registeredMetricsAreVisibleOverJmx() throws Exception {
+        RecordingMetrics metrics = new RecordingMetrics();
+        SortedList<Integer> list = evens(100, metrics);
+        list.insert(51);
+        list.insert(53, list.headNode);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register("metrics-test");
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(metrics.getComparisons(), server.getAttribute(name, "Comparisons"));
+            assertEquals(metrics.getHops(), server.getAttribute(name, "Hops"));
+            assertTrue((Long) server.getAttribute(name, "WorstHintHops") > 0);
+            assertFalse(((String) server.getAttribute(name, "WorstHintCaller")).isEmpty());
+            assertEquals(1L, metrics.getOperationCounts().get("INSERT"));
+            assertEquals(1L, metrics.getOperationCounts().get("INSERT_HINTED"));
+
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(name, "Comparisons"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+        assertFalse(server.isRegistered(name));
+        List<String> keys = new ArrayList<>(metrics.getMeanHops().keySet());
+        assertEquals(2 * Operation.values().length, keys.size());
+    }
+}
@@ -0,0 +1,113 @@
+package SortedList;
+
+import SortedList.SortedListMetrics.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the range queries of {@link SortedList}: <tt>range</tt>, <tt>countBetween</tt>,
+ * <tt>headCount</tt> and <tt>tailCount</tt>.
+ */
+class SortedListRangeTest {
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void rangesMatchModel(boolean indexed) {
+        Random random = new Random(indexed ? 1 : 2);
+        SortedList<Integer> list = new SortedList<>(indexed);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            int value = random.nextInt(200);
+            list.insert(value);
+            Models.add(model, value, 1);
+        }
+        for (int trial = 0; trial < 500; trial++) {
+            int lo = random.nextInt(220) - 10;
+            int hi = random.nextInt(220) - 10;
+            List<Integer> expected = lo > hi
+                    ? List.of()
+                    : Models.expand(new TreeMap<>(model.subMap(lo, true, hi, true)));
+            SortedList<Integer>.Range range = list.range(lo, hi);
+            assertEquals(expected, Models.toList(range));
+            assertEquals(expected.size(), range.count());
+            assertEquals(expected.size(), list.countBetween(lo, hi));
+            assertEquals(Models.rank(model, lo), list.headCount(lo));
+            assertEquals(Models.length(model) - Models.rank(model, lo), list.tailCount(lo));
+        }
+    }
+
+    @Test
+    void boundsAreInclusiveAndKeepDuplicates() {
+        SortedList<Integer> list = new SortedList<>();
+        list.insertAll(List.of(10, 20, 20, 20, 30, 40, 40));
+        assertEquals(List.of(20, 20, 20, 30), Models.toList(list.range(20, 30)));
+        assertEquals(List.of(20, 20, 20, 30), Models.toList(list.range(11, 39)));
+        assertEquals(List.of(40, 40), Models.toList(list.range(40, 40)));
+        assertEquals(Models.toList(list), Models.toList(list.range(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+
+        assertEquals(1, list.headCount(20));
+        assertEquals(6, list.tailCount(20));
+        assertEquals(0, list.headCount(10));
+        assertEquals(7, list.tailCount(10));
+        assertEquals(7, list.headCount(41));
+        assertEquals(0, list.tailCount(41));
+    }
+
+    @Test
+    void emptyRanges() {
+        SortedList<Integer> list = new SortedList<>();
+        list.insertAll(List.of(10, 20, 30));
+        for (int[] bounds : new int[][]{{21, 29}, {31, 100}, {0, 9}, {30, 20}, {20, 19}}) {
+            SortedList<Integer>.Range range = list.range(bounds[0], bounds[1]);
+            assertEquals(0, range.count());
+            Iterator<Integer> it = range.iterator();
+            assertFalse(it.hasNext());
+            assertThrows(NoSuchElementException.class, it::next);
+        }
+        SortedList<Integer> empty = new SortedList<>();
+        assertEquals(List.of(), Models.toList(empty.range(0, 10)));
+        assertEquals(0, empty.headCount(5));
+        assertEquals(0, empty.tailCount(5));
+    }
+
+    @Test
+    void rangeViewIsLazy() {
+        SortedList<Integer> list = new SortedList<>();
+        SortedList<Integer>.Range range = list.range(5, 15);
+        list.insertAll(List.of(1, 5, 10, 10, 20));
+        assertEquals(List.of(5, 10, 10), Models.toList(range));
+        list.insert(15);
+        assertEquals(4, range.count());
+    }
+
+    @Test
+    void rangeQueriesAreInstrumented() {
+        SortedList<Integer> list = new SortedList<>();
+        RecordingMetrics metrics = new RecordingMetrics();
+        list.setMetrics(metrics);
+        for (int i = 0; i < 50; i++) {
+            list.insert(i);
+        }
+        assertEquals(11, list.countBetween(10, 20));
+        assertEquals(11, Models.toList(list.range(10, 20)).size());
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.count(Operation.COUNT_BETWEEN, false));
+        assertTrue(snapshot.comparisons(Operation.COUNT_BETWEEN, false) > 0);
+        assertEquals(1, snapshot.count(Operation.RANGE, false));
+        assertTrue(snapshot.comparisons(Operation.RANGE, false) > 0);
+        assertEquals(11, snapshot.count(Operation.RANGE_NEXT, false));
+        assertEquals(11, snapshot.comparisons(Operation.RANGE_NEXT, false));
+        assertEquals(11, snapshot.hops(Operation.RANGE_NEXT, false));
+    }
+}
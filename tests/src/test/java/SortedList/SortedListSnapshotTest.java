@@ -0,0 +1,161 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trip tests of the {@link SortedListSnapshot} format for each {@link KeyCodec}.
+ */
+class SortedListSnapshotTest {
+    @TempDir
+    Path dir;
+
+    private <T extends Comparable<T>> SortedList<T> roundTrip(SortedList<T> list, KeyCodec<T> codec,
+                                                             String name) throws IOException {
+        Path file = this.dir.resolve(name);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            list.writeTo(out, codec);
+        }
+        return SortedList.readFrom(file, codec);
+    }
+
+    @Test
+    void integersRoundTrip() throws IOException {
+        Random random = new Random(1);
+        SortedList<Integer> list = new SortedList<>();
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(100) - 50;
+            list.insert(value);
+            Models.add(model, value, 1);
+        }
+        list.insert(Integer.MIN_VALUE);
+        list.insert(Integer.MAX_VALUE);
+        Models.add(model, Integer.MIN_VALUE, 1);
+        Models.add(model, Integer.MAX_VALUE, 1);
+
+        SortedList<Integer> read = roundTrip(list, KeyCodec.INTEGER, "ints.slst");
+        SortedListTest.assertMatches(model, read);
+    }
+
+    @Test
+    void longsAndStringsRoundTrip() throws IOException {
+        SortedList<Long> longs = new SortedList<>();
+        for (long v : new long[]{Long.MIN_VALUE, -1, 0, 0, 1L << 40, Long.MAX_VALUE}) {
+            longs.insert(v);
+        }
+        assertEquals(Models.toList(longs), Models.toList(roundTrip(longs, KeyCodec.LONG, "longs.slst")));
+
+        SortedList<String> strings = new SortedList<>();
+        for (String s : new String[]{"", "a", "ab", "ab", "abc", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00"}) {
+            strings.insert(s);
+        }
+        assertEquals(Models.toList(strings), Models.toList(roundTrip(strings, KeyCodec.STRING, "strings.slst")));
+    }
+
+    @Test
+    void emptyListRoundTripsAndIndexFlagIsHonoured() throws IOException {
+        assertEquals(0, roundTrip(new SortedList<Integer>(), KeyCodec.INTEGER, "empty.slst").length);
+
+        SortedList<Integer> list = new SortedList<>();
+        for (int i = 0; i < 100; i++) {
+            list.insert(i % 10);
+        }
+        Path file = this.dir.resolve("flag.slst");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            SortedListSnapshot.write(list, out, KeyCodec.INTEGER);
+        }
+        SortedList<Integer> indexed = SortedListSnapshot.read(file, KeyCodec.INTEGER, true);
+        assertTrue(indexed.isIndexed());
+        assertEquals(30, indexed.rank(3));
+        assertFalse(SortedListSnapshot.read(file, KeyCodec.INTEGER, false).isIndexed());
+    }
+
+    @Test
+    void corruptSnapshotsAreRejected() throws IOException {
+        SortedList<Integer> list = new SortedList<>();
+        for (int i = 0; i < 100; i++) {
+            list.insert(i);
+        }
+        Path file = this.dir.resolve("good.slst");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            list.writeTo(out, KeyCodec.INTEGER);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(badMagic), KeyCodec.INTEGER, false));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+        assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(truncated), KeyCodec.INTEGER, false));
+
+        assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(bytes), KeyCodec.STRING, false));
+        assertEquals(List.of(0, 1, 2), Models.toList(
+                SortedListSnapshot.read(ByteBuffer.wrap(bytes), KeyCodec.INTEGER, false)).subList(0, 3));
+    }
+
+    @Test
+    void countsOutsideIntRangeAreRejected() throws IOException {
+        byte[] bytes = snapshotOf(List.of(5));
+        assertEquals(1, bytes[bytes.length - 1]);
+
+        byte[] zero = bytes.clone();
+        zero[zero.length - 1] = 0;
+        IOException e = assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(zero), KeyCodec.INTEGER, false));
+        assertTrue(e.getMessage().contains("count 0"), e.getMessage());
+
+        // 2^31 does not fit in an int
+        byte[] huge = Arrays.copyOf(bytes, bytes.length + 4);
+        System.arraycopy(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08}, 0,
+                huge, bytes.length - 1, 5);
+        e = assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(huge), KeyCodec.INTEGER, false));
+        assertTrue(e.getMessage().contains("count 2147483648"), e.getMessage());
+
+        // Counts that fit one by one but overflow the length together
+        SortedList<Integer> list = new SortedList<>();
+        list.insertN(5, Integer.MAX_VALUE - 1);
+        list.insert(6);
+        byte[] full = snapshotOf(list);
+        assertEquals(Integer.MAX_VALUE,
+                SortedListSnapshot.read(ByteBuffer.wrap(full), KeyCodec.INTEGER, false).length);
+        full[full.length - 1] = 2;
+        assertThrows(IOException.class,
+                () -> SortedListSnapshot.read(ByteBuffer.wrap(full), KeyCodec.INTEGER, false));
+    }
+
+    private byte[] snapshotOf(List<Integer> values) throws IOException {
+        SortedList<Integer> list = new SortedList<>();
+        list.insertAll(values);
+        return snapshotOf(list);
+    }
+
+    private byte[] snapshotOf(SortedList<Integer> list) throws IOException {
+        Path file = Files.createTempFile(this.dir, "snapshot", ".slst");
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            list.writeTo(out, KeyCodec.INTEGER);
+        }
+        return Files.readAllBytes(file);
+    }
+}
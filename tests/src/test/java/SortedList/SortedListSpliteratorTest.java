@@ -0,0 +1,132 @@
+package SortedList;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the spliterators behind <tt>stream()</tt> and <tt>entryStream()</tt> of
+ * {@link SortedList}.
+ */
+class SortedListSpliteratorTest {
+    /**
+     * @return a list holding each of 0 to n - 1 between 1 and 7 times
+     */
+    private static SortedList<Integer> runs(int n, boolean indexed, TreeMap<Integer, Integer> model) {
+        Random random = new Random(n);
+        SortedList<Integer> list = new SortedList<>(indexed);
+        LinkedListNode<Integer> last = null;
+        for (int v = 0; v < n; v++) {
+            int count = 1 + random.nextInt(7);
+            last = last == null ? list.insertN(v, count) : list.insertN(v, count, last);
+            Models.add(model, v, count);
+        }
+        return list;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void parallelStreamsMatchSequential(boolean indexed) {
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        SortedList<Integer> list = runs(20000, indexed, model);
+        List<Integer> expected = Models.expand(model);
+
+        assertEquals(expected, list.stream().parallel().collect(Collectors.toList()));
+        assertEquals(list.stream().mapToLong(x -> x).sum(),
+                list.stream().parallel().mapToLong(x -> x).sum());
+        assertEquals(expected.size(), list.stream().parallel().filter(x -> true).count());
+        assertEquals(list.stream().filter(x -> x % 3 == 0).collect(Collectors.toList()),
+                list.stream().parallel().filter(x -> x % 3 == 0).collect(Collectors.toList()));
+
+        assertEquals(List.copyOf(model.keySet()),
+                list.entryStream().parallel().map(n -> n.value).collect(Collectors.toList()));
+        assertEquals(list.length, list.entryStream().parallel().mapToInt(n -> n.count).sum());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void splitsRespectOffsetsInsideRuns(boolean indexed) {
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        SortedList<Integer> list = runs(300, indexed, model);
+        List<Integer> expected = Models.expand(model);
+
+        List<Spliterator<Integer>> pieces = new ArrayList<>();
+        split(list.spliterator(), 6, pieces);
+        assertTrue(pieces.size() > 32);
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < pieces.size(); i++) {
+            Spliterator<Integer> piece = pieces.get(i);
+            long size = piece.estimateSize();
+            List<Integer> part = new ArrayList<>();
+            // Mix single steps and bulk traversal, which track the offset separately
+            if (i % 2 == 0 && piece.tryAdvance(part::add)) {
+                piece.tryAdvance(part::add);
+            }
+            piece.forEachRemaining(part::add);
+            assertEquals(size, part.size());
+            assertEquals(0, piece.estimateSize());
+            actual.addAll(part);
+        }
+        assertEquals(expected, actual);
+
+        List<Spliterator<LinkedListNode<Integer>>> entryPieces = new ArrayList<>();
+        split(list.entryStream().spliterator(), 5, entryPieces);
+        List<Integer> values = new ArrayList<>();
+        for (Spliterator<LinkedListNode<Integer>> piece : entryPieces) {
+            long size = piece.estimateSize();
+            int before = values.size();
+            piece.forEachRemaining(n -> values.add(n.value));
+            assertEquals(size, values.size() - before);
+        }
+        assertEquals(List.copyOf(model.keySet()), values);
+    }
+
+    private static <E> void split(Spliterator<E> spliterator, int depth, List<Spliterator<E>> into) {
+        Spliterator<E> prefix = depth == 0 ? null : spliterator.trySplit();
+        if (prefix == null) {
+            into.add(spliterator);
+            return;
+        }
+        split(prefix, depth - 1, into);
+        split(spliterator, depth - 1, into);
+    }
+
+    @Test
+    void characteristicsAreReported() {
+        SortedList<Integer> list = runs(10, false, new TreeMap<>());
+        Spliterator<Integer> elements = list.spliterator();
+        int expected = Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED
+                | Spliterator.ORDERED | Spliterator.NONNULL;
+        assertEquals(expected, elements.characteristics());
+        assertNull(elements.getComparator());
+        assertEquals(list.length, elements.getExactSizeIfKnown());
+        Spliterator<Integer> prefix = elements.trySplit();
+        assertEquals(expected, prefix.characteristics());
+        assertEquals(list.length, prefix.estimateSize() + elements.estimateSize());
+
+        Spliterator<LinkedListNode<Integer>> entries = list.entryStream().spliterator();
+        assertEquals(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED
+                | Spliterator.DISTINCT | Spliterator.NONNULL, entries.characteristics());
+        assertEquals(10, entries.getExactSizeIfKnown());
+        Spliterator<LinkedListNode<Integer>> entryPrefix = entries.trySplit();
+        assertEquals(5, entryPrefix.estimateSize());
+        assertEquals(5, entries.estimateSize());
+
+        SortedList<Integer> empty = new SortedList<>();
+        assertEquals(0, empty.spliterator().estimateSize());
+        assertNull(empty.spliterator().trySplit());
+        assertEquals(0, empty.entryStream().count());
+        assertNull(empty.entryStream().spliterator().trySplit());
+    }
+}
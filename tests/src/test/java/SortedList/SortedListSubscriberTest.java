@@ -0,0 +1,53 @@
+package SortedList;
+
+import SortedList.Models.Touchy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of {@link SortedListSubscriber} fed by a <tt>SubmissionPublisher</tt>.
+ */
+class SortedListSubscriberTest {
+    @Test
+    void loadsEveryPublishedItem() throws Exception {
+        Random random = new Random(1);
+        List<Integer> values = new ArrayList<>();
+        SortedListSubscriber<Integer> subscriber = new SortedListSubscriber<>(new SortedList<Integer>(true), 100);
+        try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            for (int i = 0; i < 10050; i++) {
+                int value = random.nextInt(5000);
+                values.add(value);
+                publisher.submit(value);
+            }
+        }
+        SortedList<Integer> list = subscriber.completion().get(10, TimeUnit.SECONDS);
+        Collections.sort(values);
+        assertEquals(values, Models.toList(list));
+    }
+
+    @Test
+    void failingBatchCompletesExceptionally() throws Exception {
+        SortedListSubscriber<Touchy> subscriber = new SortedListSubscriber<>(new SortedList<Touchy>(), 4);
+        try (SubmissionPublisher<Touchy> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(subscriber);
+            for (int i = 0; i < 100; i++) {
+                publisher.submit(new Touchy(i == 10 ? Touchy.POISON : i));
+            }
+        }
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> subscriber.completion().get(10, TimeUnit.SECONDS));
+        assertInstanceOf(ClassCastException.class, e.getCause());
+    }
+}
@@ -0,0 +1,331 @@
+package SortedList;
+
+import SortedList.Models.Touchy;
+import SortedList.SortedListMetrics.Operation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Model-based tests of {@link SortedList}, in each of its lookup modes, against a <tt>TreeMap</tt>.
+ */
+class SortedListTest {
+    enum Mode {
+        PLAIN, INDEXED, HASHED, INDEXED_HASHED
+    }
+
+    private static SortedList<Integer> newList(Mode mode) {
+        SortedList<Integer> list = new SortedList<>(mode == Mode.INDEXED || mode == Mode.INDEXED_HASHED);
+        list.setHashLookup(mode == Mode.HASHED || mode == Mode.INDEXED_HASHED);
+        return list;
+    }
+
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void randomOperationsMatchModel(Mode mode) {
+        Random random = new Random(mode.ordinal());
+        SortedList<Integer> list = newList(mode);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        LinkedListNode<Integer> hint = null;
+
+        for (int op = 0; op < 6000; op++) {
+            int value = random.nextInt(200);
+            Optional<LinkedListNode<Integer>> found = list.findRef(value);
+            assertEquals(model.containsKey(value), found.isPresent());
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    hint = hint == null || hint.count == 0 ? list.insert(value) : list.insert(value, hint);
+                    assertEquals(value, hint.value);
+                    Models.add(model, value, 1);
+                    break;
+                case 2:
+                    if (found.isPresent()) {
+                        assertEquals(value, list.remove(found.get()));
+                        Models.remove(model, value, 1);
+                    }
+                    break;
+                case 3:
+                    if (found.isPresent()) {
+                        int n = 1 + random.nextInt(found.get().count);
+                        list.removeN(found.get(), n);
+                        Models.remove(model, value, n);
+                    }
+                    break;
+                case 4:
+                    if (found.isPresent()) {
+                        int n = found.get().count;
+                        list.removeAll(found.get());
+                        assertEquals(0, found.get().count);
+                        Models.remove(model, value, n);
+                    }
+                    break;
+                default:
+                    if (found.isPresent()) {
+                        int elem = random.nextInt(200);
+                        LinkedListNode<Integer> moved = list.update(found.get(), elem);
+                        assertEquals(elem, moved.value);
+                        Models.remove(model, value, 1);
+                        Models.add(model, elem, 1);
+                    }
+            }
+            if (op % 300 == 0) {
+                assertMatches(model, list);
+            }
+            if (op == 3000 && mode == Mode.PLAIN) {
+                list.setIndexed(true);
+            }
+        }
+        assertMatches(model, list);
+    }
+
+    @Test
+    void indexedGetRefTakesFewHops() {
+        SortedList<Integer> list = new SortedList<>(true);
+        for (int i = 0; i < 100000; i++) {
+            list.insert(i);
+        }
+        RecordingMetrics metrics = new RecordingMetrics();
+        list.setMetrics(metrics);
+        for (int idx = 0; idx < 100000; idx += 997) {
+            assertEquals(idx, list.getRef(idx).value);
+        }
+        assertTrue(metrics.snapshot().meanHops(Operation.GET_REF, false) < 200);
+    }
+
+    /**
+     * Check every query of a list against the model, including the skip index spans behind
+     * <tt>getRef</tt> and <tt>rank</tt>
+     */
+    static void assertMatches(TreeMap<Integer, Integer> model, SortedList<Integer> list) {
+        List<Integer> expected = Models.expand(model);
+        assertEquals(expected, Models.toList(list));
+        assertEquals(expected.size(), list.length);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(expected.size()));
+
+        LinkedListNode<Integer> prev = null;
+        for (LinkedListNode<Integer> node : list.entries()) {
+            assertSame(prev, node.prev.orElse(null));
+            assertEquals(model.get(node.value), node.count);
+            assertEquals(Models.rank(model, node.value), list.indexOf(node));
+            prev = node;
+        }
+        assertSame(prev, list.lastNode);
+
+        for (int probe = -1; probe <= 201; probe += 7) {
+            assertEquals(Models.rank(model, probe), list.rank(probe));
+            Integer floor = model.floorKey(probe);
+            assertEquals(floor, list.findRefBefore(probe).map(n -> n.value).orElse(null));
+            int hi = probe + 30;
+            assertEquals(Models.rank(model, hi + 1) - Models.rank(model, probe), list.countBetween(probe, hi));
+            assertEquals(0, list.countBetween(hi, probe));
+        }
+    }
+
+    @Test
+    void insertAllMatchesModel() {
+        Random random = new Random(3);
+        SortedList<Integer> list = new SortedList<>(true);
+        TreeMap<Integer, Integer> model = new TreeMap<>();
+        for (int batch = 0; batch < 20; batch++) {
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                int value = random.nextInt(500);
+                values.add(value);
+                Models.add(model, value, 1);
+            }
+            list.insertAll(values);
+            assertMatches(model, list);
+        }
+    }
+
+    @Test
+    void setOperationsMatchModel() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 20; trial++) {
+            SortedList<Integer> a = new SortedList<>(trial % 2 == 0);
+            SortedList<Integer> b = new SortedList<>();
+            TreeMap<Integer, Integer> ma = new TreeMap<>();
+            TreeMap<Integer, Integer> mb = new TreeMap<>();
+            for (int i = 0; i < 300; i++) {
+                int x = random.nextInt(80);
+                int y = random.nextInt(80);
+                a.insert(x);
+                Models.add(ma, x, 1);
+                b.insert(y);
+                Models.add(mb, y, 1);
+            }
+
+            TreeMap<Integer, Integer> union = new TreeMap<>(ma);
+            mb.forEach((k, v) -> Models.add(union, k, v));
+            TreeMap<Integer, Integer> intersect = new TreeMap<>();
+            TreeMap<Integer, Integer> difference = new TreeMap<>();
+            ma.forEach((k, v) -> {
+                int theirs = mb.getOrDefault(k, 0);
+                if (Math.min(v, theirs) > 0) {
+                    intersect.put(k, Math.min(v, theirs));
+                }
+                if (v - theirs > 0) {
+                    difference.put(k, v - theirs);
+                }
+            });
+
+            assertMatches(union, a.union(b));
+            assertMatches(intersect, a.intersect(b));
+            assertMatches(difference, a.difference(b));
+
+            a.mergeFrom(b);
+            assertMatches(union, a);
+            assertEquals(0, b.length);
+            assertNull(b.headNode);
+        }
+        SortedList<Integer> list = new SortedList<>();
+        assertThrows(IllegalArgumentException.class, () -> list.mergeFrom(list));
+    }
+
+    @Test
+    void updateAllMatchesModelAndKeepsNodeIdentity() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 100; trial++) {
+            SortedList<Integer> list = new SortedList<>(trial % 2 == 0);
+            TreeMap<Integer, Integer> model = new TreeMap<>();
+            for (int i = 0; i < 200; i++) {
+                int value = random.nextInt(60);
+                list.insert(value);
+                Models.add(model, value, 1);
+            }
+            List<LinkedListNode<Integer>> held = Models.toList(list.entries());
+            Map<LinkedListNode<Integer>, Integer> heldValues = new IdentityHashMap<>();
+            held.forEach(node -> heldValues.put(node, node.value));
+
+            List<Map.Entry<LinkedListNode<Integer>, Integer>> moves = new ArrayList<>();
+            Map<LinkedListNode<Integer>, Integer> used = new IdentityHashMap<>();
+            for (int k = 0; k < 40; k++) {
+                LinkedListNode<Integer> node = held.get(random.nextInt(held.size()));
+                if (used.merge(node, 1, Integer::sum) > node.count) {
+                    continue;
+                }
+                int elem = random.nextInt(80) - 10;
+                moves.add(Map.entry(node, elem));
+                Models.remove(model, node.value, 1);
+                Models.add(model, elem, 1);
+            }
+
+            List<LinkedListNode<Integer>> placed = list.updateAll(moves);
+            for (int i = 0; i < moves.size(); i++) {
+                assertEquals(moves.get(i).getValue(), placed.get(i).value);
+            }
+            for (LinkedListNode<Integer> node : held) {
+                assertEquals(heldValues.get(node), node.value);
+                assertTrue(node.count == 0 || node.count == model.get(node.value));
+            }
+            assertMatches(model, list);
+        }
+    }
+
+    @Test
+    void updateAllRejectsOverdrawnNodeWithoutChangingList() {
+        SortedList<Integer> list = new SortedList<>();
+        LinkedListNode<Integer> node = list.insert(5);
+        list.insert(7);
+        assertThrows(IllegalArgumentException.class,
+                () -> list.updateAll(List.of(Map.entry(node, 1), Map.entry(node, 2))));
+        assertEquals(List.of(5, 7), Models.toList(list));
+    }
+
+    @Test
+    void throwingCompareLeavesListUnchanged() {
+        SortedList<Touchy> list = new SortedList<>(true);
+        List<LinkedListNode<Touchy>> nodes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            nodes.add(list.insert(new Touchy(i)));
+        }
+        assertThrows(ClassCastException.class, () -> list.updateAll(List.of(
+                Map.entry(nodes.get(2), new Touchy(50)), Map.entry(nodes.get(3), new Touchy(Touchy.POISON)))));
+        assertThrows(ClassCastException.class,
+                () -> list.insertAll(List.of(new Touchy(20), new Touchy(Touchy.POISON))));
+        assertEquals("[0, 1, 2, 3, 4, 5, 6, 7, 8, 9]", Models.toList(list).toString());
+        assertEquals(10, list.length);
+    }
+
+    @Test
+    void fromSortedMatchesModel() {
+        Random random = new Random(5);
+        for (boolean indexed : new boolean[]{false, true}) {
+            TreeMap<Integer, Integer> model = new TreeMap<>();
+            for (int i = 0; i < 2000; i++) {
+                Models.add(model, random.nextInt(300), 1);
+            }
+            SortedList<Integer> list = SortedList.fromSorted(Models.expand(model).iterator(), indexed);
+            assertMatches(model, list);
+            list.insert(150);
+            Models.add(model, 150, 1);
+            assertMatches(model, list);
+        }
+        assertEquals(0, SortedList.fromSorted(List.<Integer>of().iterator()).length);
+    }
+
+    @Test
+    void fromSortedFoldsRunsIntoCounts() {
+        SortedList<Integer> list = SortedList.fromSorted(List.of(1, 1, 1, 2, 5, 5).iterator());
+        List<LinkedListNode<Integer>> nodes = Models.toList(list.entries());
+        assertEquals(3, nodes.size());
+        assertEquals(List.of(3, 1, 2), List.of(nodes.get(0).count, nodes.get(1).count, nodes.get(2).count));
+        assertEquals(6, list.length);
+    }
+
+    @Test
+    void fromSortedRejectsOutOfOrderInput() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SortedList.fromSorted(List.of(1, 3, 2, 4).iterator()));
+        assertEquals("Out of order: 2 after 3", e.getMessage());
+    }
+
+    @Test
+    void adaptiveHashLookupTurnsOnForCountingWorkloads() {
+        Random random = new Random(1);
+        SortedList<Integer> counting = new SortedList<>();
+        counting.setAdaptiveHashLookup(true);
+        for (int i = 0; i < 2 * SortedList.HASH_LOOKUP_WINDOW; i++) {
+            counting.insert(random.nextInt(20));
+        }
+        assertTrue(counting.isHashLookup());
+
+        for (int i = 0; i <= SortedList.HASH_LOOKUP_LIMIT; i++) {
+            counting.insert(1000 + i);
+        }
+        assertFalse(counting.isHashLookup());
+        for (int i = 0; i <= SortedList.HASH_LOOKUP_LIMIT; i++) {
+            counting.removeAll(counting.findRef(1000 + i).get());
+        }
+        for (int i = 0; i < 2 * SortedList.HASH_LOOKUP_WINDOW; i++) {
+            counting.insert(random.nextInt(20));
+        }
+        assertTrue(counting.isHashLookup());
+
+        SortedList<Integer> distinct = new SortedList<>(true);
+        distinct.setAdaptiveHashLookup(true);
+        for (int i = 0; i < 2 * SortedList.HASH_LOOKUP_WINDOW; i++) {
+            distinct.insert(i);
+        }
+        assertFalse(distinct.isHashLookup());
+    }
+}